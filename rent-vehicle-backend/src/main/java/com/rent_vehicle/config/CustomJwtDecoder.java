@@ -11,37 +11,56 @@ import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class CustomJwtDecoder implements JwtDecoder {
-    
+
     @Value("${jwt.signerKey:MySecretKeyForJwtTokenGenerationAndValidation1234567890}")
     private String signerKey;
 
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
-    
+    @Value("${app.auth.jwt-cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${app.auth.jwt-cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private volatile NimbusJwtDecoder nimbusJwtDecoder = null;
+
+    // Jwt đã verify chữ ký, key là SHA-256 của token; entry hết hạn cùng lúc với token
+    private final Map<String, Jwt> verifiedTokens = new ConcurrentHashMap<>();
+
     @Autowired
     private TokenService tokenService;
 
     @Override
     public Jwt decode(String token) throws JwtException {
         try {
-            if (nimbusJwtDecoder == null) {
-                SecretKeySpec secretKey = new SecretKeySpec(signerKey.getBytes(), "HS256");
-                nimbusJwtDecoder = NimbusJwtDecoder
-                        .withSecretKey(secretKey)
-                        .macAlgorithm(MacAlgorithm.HS256)
-                        .build();
+            String cacheKey = cacheEnabled ? digest(token) : null;
+            Jwt jwt = cacheKey != null ? getCached(cacheKey) : null;
+
+            if (jwt == null) {
+                jwt = decoder().decode(token);
+                if (cacheKey != null) {
+                    putCached(cacheKey, jwt);
+                }
             }
-            
-            Jwt jwt = nimbusJwtDecoder.decode(token);
-            
-            // Check if token is blacklisted
+
+            // Check if token is blacklisted (kể cả khi lấy từ cache, để logout có hiệu lực ngay)
             String jti = jwt.getId();
             if (jti != null && tokenService.isAccessTokenBlacklisted(jti)) {
+                if (cacheKey != null) {
+                    verifiedTokens.remove(cacheKey);
+                }
                 throw new JwtException("Token has been revoked");
             }
-            
+
             return jwt;
         } catch (JwtException e) {
             throw e;
@@ -49,4 +68,54 @@ public class CustomJwtDecoder implements JwtDecoder {
             throw new JwtException("Invalid token");
         }
     }
+
+    private NimbusJwtDecoder decoder() {
+        NimbusJwtDecoder decoder = nimbusJwtDecoder;
+        if (decoder == null) {
+            SecretKeySpec secretKey = new SecretKeySpec(signerKey.getBytes(), "HS256");
+            decoder = NimbusJwtDecoder
+                    .withSecretKey(secretKey)
+                    .macAlgorithm(MacAlgorithm.HS256)
+                    .build();
+            nimbusJwtDecoder = decoder;
+        }
+        return decoder;
+    }
+
+    private Jwt getCached(String cacheKey) {
+        Jwt jwt = verifiedTokens.get(cacheKey);
+        if (jwt == null) {
+            return null;
+        }
+        if (isExpired(jwt, Instant.now())) {
+            verifiedTokens.remove(cacheKey);
+            return null;
+        }
+        return jwt;
+    }
+
+    private void putCached(String cacheKey, Jwt jwt) {
+        // Không cache token không có exp, vì không biết khi nào phải bỏ
+        if (jwt.getExpiresAt() == null) {
+            return;
+        }
+
+        if (verifiedTokens.size() >= cacheMaxEntries) {
+            Instant now = Instant.now();
+            verifiedTokens.values().removeIf(cached -> isExpired(cached, now));
+            if (verifiedTokens.size() >= cacheMaxEntries) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(cacheKey, jwt);
+    }
+
+    private boolean isExpired(Jwt jwt, Instant now) {
+        return jwt.getExpiresAt() == null || !jwt.getExpiresAt().isAfter(now);
+    }
+
+    private String digest(String token) throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
 }
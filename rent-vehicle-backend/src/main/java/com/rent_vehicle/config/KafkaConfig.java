@@ -2,11 +2,13 @@ package com.rent_vehicle.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
@@ -14,9 +16,14 @@ import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @Configuration
 @EnableKafka
@@ -31,6 +38,21 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.auto-offset-reset:earliest}")
     private String autoOffsetReset;
 
+    @Value("${app.kafka.topics.booking-approved-email-dlt:booking-approved-email.DLT}")
+    private String bookingApprovedEmailDltTopic;
+
+    @Value("${app.kafka.booking-email.concurrency:3}")
+    private int bookingEmailConcurrency;
+
+    @Value("${app.kafka.booking-email.max-poll-records:100}")
+    private int bookingEmailMaxPollRecords;
+
+    @Value("${app.kafka.booking-email.retry-attempts:3}")
+    private int bookingEmailRetryAttempts;
+
+    @Value("${app.kafka.listener.virtual-threads:false}")
+    private boolean virtualListenerThreads;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -39,6 +61,8 @@ public class KafkaConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+        // Offset chỉ được commit bởi container sau khi listener xử lý xong
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
@@ -49,6 +73,16 @@ public class KafkaConfig {
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // Idempotent producer: broker loại bỏ bản ghi trùng khi producer tự retry
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // Gom record của một lô outbox thành ít request
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        // Giới hạn thời gian chờ để OutboxRelay không giữ lock quá lâu khi broker gặp sự cố
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 10000);
+        props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 10000);
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 30000);
         return new DefaultKafkaProducerFactory<>(props);
     }
 
@@ -65,6 +99,57 @@ public class KafkaConfig {
                 new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(consumerFactory);
+        applyListenerTaskExecutor(factory, "kafka-listener-");
+        return factory;
+    }
+
+    /**
+     * Batch listener cho email booking: mỗi lần poll xử lý cả lô, offset được commit sau khi listener
+     * trả về. Nếu cả lô lỗi (ví dụ mất kết nối DB) thì retry với backoff, sau đó đẩy từng record sang DLT.
+     */
+    @Bean(name = "bookingEmailBatchListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, String> bookingEmailBatchListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            KafkaTemplate<String, String> kafkaTemplate
+    ) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(bookingEmailConcurrency);
+        applyListenerTaskExecutor(factory, "booking-email-listener-");
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, bookingEmailMaxPollRecords);
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProps);
+
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(
+                kafkaTemplate,
+                (record, ex) -> new TopicPartition(bookingApprovedEmailDltTopic, -1)
+        );
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(bookingEmailRetryAttempts);
+        backOff.setInitialInterval(1000);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(10000);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(recoverer, backOff));
         return factory;
     }
+
+    /**
+     * Consumer loop mặc định chạy trên platform thread kể cả khi bật spring.threads.virtual.enabled:
+     * KafkaConsumer (classic protocol) block trong các block synchronized của coordinator/network client
+     * khi poll, nên mỗi consumer sẽ pin một carrier thread gần như liên tục. Chỉ bật
+     * app.kafka.listener.virtual-threads khi đã kiểm chứng bằng VirtualThreadPinningMonitor.
+     */
+    private void applyListenerTaskExecutor(ConcurrentKafkaListenerContainerFactory<String, String> factory, String threadNamePrefix) {
+        if (!virtualListenerThreads) {
+            return;
+        }
+
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        factory.getContainerProperties().setListenerTaskExecutor(executor);
+    }
 }
@@ -1,9 +1,14 @@
 package com.rent_vehicle.config;
 
+import com.rent_vehicle.service.AccessTokenBlacklistCache;
+import com.rent_vehicle.service.BookingAvailabilityIndex;
+import com.rent_vehicle.service.CatalogCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -20,4 +25,19 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            CatalogCache catalogCache,
+            AccessTokenBlacklistCache accessTokenBlacklistCache,
+            BookingAvailabilityIndex bookingAvailabilityIndex
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(catalogCache, new ChannelTopic(catalogCache.getChannel()));
+        container.addMessageListener(accessTokenBlacklistCache, new ChannelTopic(accessTokenBlacklistCache.getChannel()));
+        container.addMessageListener(bookingAvailabilityIndex, new ChannelTopic(bookingAvailabilityIndex.getChannel()));
+        return container;
+    }
 }
@@ -59,6 +59,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/vehicle-types/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/vehicle-models/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/reviews/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/locations/**").permitAll()
                         .anyRequest().authenticated()
         );
 
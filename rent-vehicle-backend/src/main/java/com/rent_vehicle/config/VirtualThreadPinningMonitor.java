@@ -0,0 +1,107 @@
+package com.rent_vehicle.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Theo dõi virtual thread bị pin vào carrier thread (block trong synchronized hoặc native frame)
+ * bằng JFR event jdk.VirtualThreadPinned. Mỗi vị trí pin được log một lần kèm stack trace, và
+ * tổng số lần pin được đếm qua metric jvm.threads.virtual.pinned.
+ *
+ * Chỉ chạy khi bật spring.threads.virtual.enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final int STACK_DEPTH = 12;
+
+    private final Counter pinnedCounter;
+    private final Map<String, Boolean> reportedLocations = new ConcurrentHashMap<>();
+    private RecordingStream recordingStream;
+
+    @Value("${app.threads.pinning-monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.threads.pinning-monitor.threshold-ms:20}")
+    private long thresholdMs;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned")
+                    .withThreshold(Duration.ofMillis(thresholdMs))
+                    .withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinnedCounter.increment();
+                String stack = format(event.getStackTrace());
+                // Cùng một vị trí thường lặp lại ở mọi request, chỉ log lần đầu
+                if (reportedLocations.size() < 1000 && reportedLocations.putIfAbsent(stack, Boolean.TRUE) == null) {
+                    log.warn("Virtual thread pinned for {} ms at:\n{}", event.getDuration().toMillis(), stack);
+                }
+            });
+            stream.startAsync();
+            recordingStream = stream;
+            log.info("Virtual thread pinning monitor started (threshold {} ms)", thresholdMs);
+        } catch (RuntimeException ex) {
+            log.warn("Virtual thread pinning monitor is unavailable on this JVM", ex);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t<no stack trace>";
+        }
+        // Bỏ các frame park/sleep của JDK để vị trí gây pin nằm ở đầu
+        return stackTrace.getFrames().stream()
+                .dropWhile(frame -> isJdkParkFrame(frame.getMethod().getType().getName()))
+                .limit(STACK_DEPTH)
+                .map(this::format)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static boolean isJdkParkFrame(String className) {
+        return className.equals("java.lang.VirtualThread")
+                || className.equals("java.lang.Thread")
+                || className.startsWith("java.util.concurrent.locks.");
+    }
+
+    private String format(RecordedFrame frame) {
+        return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+}
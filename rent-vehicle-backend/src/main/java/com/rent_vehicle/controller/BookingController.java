@@ -1,8 +1,12 @@
 package com.rent_vehicle.controller;
 
+import com.rent_vehicle.dto.request.BulkApproveBookingsRequest;
 import com.rent_vehicle.dto.request.CreateBookingRequest;
 import com.rent_vehicle.dto.response.ApiResponse;
+import com.rent_vehicle.dto.response.BookingHoldResponse;
 import com.rent_vehicle.dto.response.BookingResponse;
+import com.rent_vehicle.dto.response.BulkApproveBookingsResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.service.BookingService;
 import lombok.AccessLevel;
@@ -28,6 +32,42 @@ public class BookingController {
                 .build();
     }
 
+    /**
+     * Giữ chỗ xe cho khoảng ngày trong lúc thanh toán; xác nhận bằng POST /holds/{holdId}/confirm
+     */
+    @PostMapping("/holds")
+    public ApiResponse<BookingHoldResponse> placeHold(@RequestBody CreateBookingRequest request) {
+        return ApiResponse.<BookingHoldResponse>builder()
+                .message("Booking hold placed successfully!")
+                .result(bookingService.placeHold(request))
+                .build();
+    }
+
+    @PostMapping("/holds/{holdId}/confirm")
+    public ApiResponse<BookingResponse> confirmHold(@PathVariable String holdId) {
+        return ApiResponse.<BookingResponse>builder()
+                .message("Booking created successfully!")
+                .result(bookingService.confirmHold(holdId))
+                .build();
+    }
+
+    @DeleteMapping("/holds/{holdId}")
+    public ApiResponse<String> releaseHold(@PathVariable String holdId) {
+        bookingService.releaseHold(holdId);
+        return ApiResponse.<String>builder()
+                .message("Booking hold released successfully!")
+                .result("Booking hold has been released.")
+                .build();
+    }
+
+    @PutMapping("/bulk-approve")
+    public ApiResponse<BulkApproveBookingsResponse> approveBookings(@RequestBody BulkApproveBookingsRequest request) {
+        return ApiResponse.<BulkApproveBookingsResponse>builder()
+                .message("Bulk approval processed")
+                .result(bookingService.approveBookings(request))
+                .build();
+    }
+
     @PutMapping("/{id}/approve")
     public ApiResponse<BookingResponse> approveBooking(@PathVariable Long id) {
         return ApiResponse.<BookingResponse>builder()
@@ -66,6 +106,24 @@ public class BookingController {
                 .build();
     }
 
+    /**
+     * Cursor-based variant of /my-bookings: pass nextCursor from the previous page to continue
+     */
+    @GetMapping("/my-bookings/cursor")
+    public ApiResponse<CursorPageResponse<BookingResponse>> getMyBookingsByCursor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) LocalDate fromDate,
+            @RequestParam(required = false) LocalDate toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ApiResponse.<CursorPageResponse<BookingResponse>>builder()
+                .message("Your bookings retrieved successfully!")
+                .result(bookingService.getMyBookingsByCursor(status, fromDate, toDate, cursor, size, includeTotal))
+                .build();
+    }
+
     @GetMapping
     public ApiResponse<PageResponse<BookingResponse>> getAllBookings(
             @RequestParam(required = false) String status,
@@ -80,4 +138,20 @@ public class BookingController {
                 .result(bookingService.getAllBookings(status, fromDate, toDate, userId, page, size))
                 .build();
     }
+
+    @GetMapping("/cursor")
+    public ApiResponse<CursorPageResponse<BookingResponse>> getAllBookingsByCursor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) LocalDate fromDate,
+            @RequestParam(required = false) LocalDate toDate,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ApiResponse.<CursorPageResponse<BookingResponse>>builder()
+                .message("Bookings retrieved successfully!")
+                .result(bookingService.getAllBookingsByCursor(status, fromDate, toDate, userId, cursor, size, includeTotal))
+                .build();
+    }
 }
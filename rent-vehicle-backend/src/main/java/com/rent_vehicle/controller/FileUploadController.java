@@ -1,6 +1,7 @@
 package com.rent_vehicle.controller;
 
 import com.rent_vehicle.dto.response.ApiResponse;
+import com.rent_vehicle.dto.response.ImageUploadResponse;
 import com.rent_vehicle.service.CloudinaryService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -31,14 +32,17 @@ public class FileUploadController {
     }
 
     /**
-     * Upload multiple images for vehicles
+     * Upload multiple images for vehicles, each file reports its own success or error
      */
     @PostMapping("/vehicle-images")
-    public ApiResponse<List<String>> uploadVehicleImages(@RequestParam("files") List<MultipartFile> files) {
-        List<String> urls = cloudinaryService.uploadImages(files, "vehicles");
-        return ApiResponse.<List<String>>builder()
-                .message("Images uploaded successfully")
-                .result(urls)
+    public ApiResponse<List<ImageUploadResponse>> uploadVehicleImages(@RequestParam("files") List<MultipartFile> files) {
+        List<ImageUploadResponse> results = cloudinaryService.uploadImagesWithResults(files, "vehicles");
+        long uploaded = results.stream().filter(ImageUploadResponse::isSuccess).count();
+        return ApiResponse.<List<ImageUploadResponse>>builder()
+                .message(uploaded == results.size()
+                        ? "Images uploaded successfully"
+                        : "Uploaded " + uploaded + " of " + results.size() + " images")
+                .result(results)
                 .build();
     }
 
@@ -0,0 +1,28 @@
+package com.rent_vehicle.controller;
+
+import com.rent_vehicle.dto.response.ApiResponse;
+import com.rent_vehicle.dto.response.LocationResponse;
+import com.rent_vehicle.service.LocationService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/locations")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocationController {
+
+    LocationService locationService;
+
+    @GetMapping
+    public ApiResponse<List<LocationResponse>> getLocations() {
+        return ApiResponse.<List<LocationResponse>>builder()
+                .message("Locations retrieved successfully!")
+                .result(locationService.getAllWithFleetCounts())
+                .build();
+    }
+}
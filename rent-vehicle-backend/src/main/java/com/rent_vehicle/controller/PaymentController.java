@@ -3,8 +3,10 @@ package com.rent_vehicle.controller;
 import com.rent_vehicle.dto.response.ApiResponse;
 import com.rent_vehicle.dto.request.CreatePaymentRequest;
 import com.rent_vehicle.dto.response.PaymentResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.service.PaymentService;
+import com.rent_vehicle.service.TableExporter;
 import com.rent_vehicle.dto.response.VnPayPaymentUrlResponse;
 import com.rent_vehicle.service.VnPayService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,6 +16,7 @@ import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.util.List;
@@ -79,6 +82,12 @@ public class PaymentController {
                 .build();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam(defaultValue = "csv") String format) {
+        TableExporter.Format exportFormat = TableExporter.Format.from(format);
+        return TableExporter.attachment("payments", exportFormat, paymentService.exportAll(exportFormat));
+    }
+
     @GetMapping("/paginated")
     public ApiResponse<PageResponse<PaymentResponse>> getAllPaymentsPaginated(
             @RequestParam(defaultValue = "1") int page,
@@ -90,6 +99,18 @@ public class PaymentController {
                 .build();
     }
 
+    @GetMapping("/cursor")
+    public ApiResponse<CursorPageResponse<PaymentResponse>> getAllPaymentsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ApiResponse.<CursorPageResponse<PaymentResponse>>builder()
+                .message("Payments retrieved successfully!")
+                .result(paymentService.getAllByCursor(cursor, size, includeTotal))
+                .build();
+    }
+
     @PostMapping("/vnpay/create")
     public ApiResponse<VnPayPaymentUrlResponse> createVnPayPaymentUrl(
             @RequestParam Long bookingId,
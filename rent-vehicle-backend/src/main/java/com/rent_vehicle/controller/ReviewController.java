@@ -3,12 +3,16 @@ package com.rent_vehicle.controller;
 import com.rent_vehicle.dto.response.ApiResponse;
 import com.rent_vehicle.dto.request.CreateReviewRequest;
 import com.rent_vehicle.dto.response.ReviewResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.service.ReviewService;
+import com.rent_vehicle.service.TableExporter;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -96,6 +100,12 @@ public class ReviewController {
                 .build();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReviews(@RequestParam(defaultValue = "csv") String format) {
+        TableExporter.Format exportFormat = TableExporter.Format.from(format);
+        return TableExporter.attachment("reviews", exportFormat, reviewService.exportAll(exportFormat));
+    }
+
     @GetMapping("/paginated")
     public ApiResponse<PageResponse<ReviewResponse>> getAllReviewsPaginated(
             @RequestParam(defaultValue = "1") int page,
@@ -106,4 +116,16 @@ public class ReviewController {
                 .result(reviewService.getAllPaginated(page, size))
                 .build();
     }
+
+    @GetMapping("/cursor")
+    public ApiResponse<CursorPageResponse<ReviewResponse>> getAllReviewsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ApiResponse.<CursorPageResponse<ReviewResponse>>builder()
+                .message("Reviews retrieved successfully!")
+                .result(reviewService.getAllByCursor(cursor, size, includeTotal))
+                .build();
+    }
 }
@@ -3,10 +3,13 @@ package com.rent_vehicle.controller;
 import com.rent_vehicle.dto.response.ApiResponse;
 import com.rent_vehicle.dto.response.UserResponse;
 import com.rent_vehicle.service.UserService;
+import com.rent_vehicle.service.TableExporter;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -58,6 +61,12 @@ public class UserController {
                 .build();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "csv") String format) {
+        TableExporter.Format exportFormat = TableExporter.Format.from(format);
+        return TableExporter.attachment("users", exportFormat, userService.exportAllUsers(exportFormat));
+    }
+
     @GetMapping("/search")
     public ApiResponse<List<UserResponse>> searchUsers(@RequestParam("keyword") String keyword) {
         return ApiResponse.<List<UserResponse>>builder()
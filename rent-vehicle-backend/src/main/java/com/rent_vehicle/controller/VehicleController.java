@@ -5,10 +5,13 @@ import com.rent_vehicle.dto.request.CreateVehicleRequest;
 import com.rent_vehicle.dto.response.VehicleResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.service.VehicleService;
+import com.rent_vehicle.service.TableExporter;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -60,6 +63,12 @@ public class VehicleController {
                 .build();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportVehicles(@RequestParam(defaultValue = "csv") String format) {
+        TableExporter.Format exportFormat = TableExporter.Format.from(format);
+        return TableExporter.attachment("vehicles", exportFormat, vehicleService.exportAll(exportFormat));
+    }
+
     @GetMapping("/status/{status}")
     public ApiResponse<List<VehicleResponse>> getVehiclesByStatus(@PathVariable String status) {
         return ApiResponse.<List<VehicleResponse>>builder()
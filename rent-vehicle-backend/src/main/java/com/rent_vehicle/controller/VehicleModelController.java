@@ -2,9 +2,11 @@ package com.rent_vehicle.controller;
 
 import com.rent_vehicle.dto.response.ApiResponse;
 import com.rent_vehicle.dto.request.CreateVehicleModelRequest;
+import com.rent_vehicle.dto.response.ModelAvailabilityResponse;
 import com.rent_vehicle.dto.response.VehicleModelResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.service.CloudinaryService;
+import com.rent_vehicle.service.VehicleAvailabilityService;
 import com.rent_vehicle.service.VehicleModelService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
@@ -14,6 +16,7 @@ import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,6 +27,7 @@ public class VehicleModelController {
 
     VehicleModelService vehicleModelService;
     CloudinaryService cloudinaryService;
+    VehicleAvailabilityService vehicleAvailabilityService;
     ObjectMapper objectMapper;
 
     /**
@@ -82,6 +86,22 @@ public class VehicleModelController {
                 .build();
     }
 
+    /**
+     * Vehicle models with at least one free vehicle at the location for the whole date range,
+     * with the total rental price. Leave location empty to search every location.
+     */
+    @GetMapping("/availability")
+    public ApiResponse<List<ModelAvailabilityResponse>> searchAvailability(
+            @RequestParam(required = false) String location,
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate
+    ) {
+        return ApiResponse.<List<ModelAvailabilityResponse>>builder()
+                .message("Available vehicle models retrieved successfully!")
+                .result(vehicleAvailabilityService.search(location, startDate, endDate))
+                .build();
+    }
+
     @GetMapping("/{id}")
     public ApiResponse<VehicleModelResponse> getVehicleModel(@PathVariable Long id) {
         return ApiResponse.<VehicleModelResponse>builder()
@@ -0,0 +1,14 @@
+package com.rent_vehicle.dto.request;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkApproveBookingsRequest {
+    List<Long> bookingIds;
+}
@@ -0,0 +1,17 @@
+package com.rent_vehicle.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingApprovalResult {
+    Long bookingId;
+    boolean approved;
+    Long vehicleId;
+    Integer errorCode;
+    String message;
+}
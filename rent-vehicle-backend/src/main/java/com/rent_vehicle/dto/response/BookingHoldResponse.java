@@ -0,0 +1,23 @@
+package com.rent_vehicle.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingHoldResponse {
+    String holdId;
+    Long vehicleModelId;
+    Long vehicleId;
+    LocalDate startDate;
+    LocalDate endDate;
+    String paymentMethod;
+    BigDecimal totalPrice;
+    LocalDateTime expiresAt;
+}
@@ -0,0 +1,16 @@
+package com.rent_vehicle.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkApproveBookingsResponse {
+    int requested;
+    int approved;
+    List<BookingApprovalResult> results;
+}
@@ -0,0 +1,56 @@
+package com.rent_vehicle.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rent_vehicle.util.PageCursor;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Trang theo cursor: client gửi lại nextCursor để lấy trang kế tiếp.
+ * totalElements chỉ có khi client yêu cầu (includeTotal), vì COUNT trên bảng lớn tốn kém.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPageResponse<T> {
+    int pageSize;
+    boolean hasNext;
+    String nextCursor;
+    Long totalElements;
+
+    @Builder.Default
+    private List<T> data = Collections.emptyList();
+
+    /**
+     * Dựng trang từ kết quả query lấy dư một dòng (size + 1) để biết còn trang sau hay không
+     */
+    public static <E, T> CursorPageResponse<T> of(
+            List<E> rows,
+            int size,
+            Function<E, PageCursor> cursorOf,
+            Function<E, T> mapper,
+            Long totalElements
+    ) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+
+        return CursorPageResponse.<T>builder()
+                .pageSize(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)).encode() : null)
+                .totalElements(totalElements)
+                .data(pageRows.stream().map(mapper).toList())
+                .build();
+    }
+}
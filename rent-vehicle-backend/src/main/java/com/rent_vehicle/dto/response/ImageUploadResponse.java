@@ -0,0 +1,25 @@
+package com.rent_vehicle.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Kết quả upload của một file trong lô: có url nếu thành công, ngược lại có code/error
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImageUploadResponse {
+    String fileName;
+    String url;
+    Integer code;
+    String error;
+
+    public boolean isSuccess() {
+        return url != null;
+    }
+}
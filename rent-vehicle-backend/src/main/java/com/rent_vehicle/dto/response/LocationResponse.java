@@ -0,0 +1,15 @@
+package com.rent_vehicle.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LocationResponse {
+    Long id;
+    String name;
+    Long availableVehicles;
+}
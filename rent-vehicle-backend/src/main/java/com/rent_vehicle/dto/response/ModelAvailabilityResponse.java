@@ -0,0 +1,20 @@
+package com.rent_vehicle.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ModelAvailabilityResponse {
+    Long vehicleModelId;
+    String vehicleModelName;
+    String brand;
+    BigDecimal pricePerDay;
+    Long availableVehicles;
+    Long days;
+    BigDecimal totalPrice;
+}
@@ -13,6 +13,8 @@ public enum ErrorCode {
     UNCATEGORIZED_EXCEPTION(9999, "Uncategorized error", HttpStatus.INTERNAL_SERVER_ERROR),
     INVALID_REQUEST(1000, "Invalid request", HttpStatus.BAD_REQUEST),
     ACCESS_DENIED(1001, "Access denied", HttpStatus.FORBIDDEN),
+    INVALID_CURSOR(1002, "Invalid pagination cursor", HttpStatus.BAD_REQUEST),
+    INVALID_EXPORT_FORMAT(1003, "Export format must be csv or ndjson", HttpStatus.BAD_REQUEST),
 
     // --- USER / AUTH ---
     USER_NOT_FOUND(2001, "User not found", HttpStatus.NOT_FOUND),
@@ -51,6 +53,9 @@ public enum ErrorCode {
     BOOKING_CANNOT_CANCEL(4005, "Booking cannot be cancelled in current status", HttpStatus.BAD_REQUEST),
     BOOKING_NOT_AUTHORIZED(4006, "Not authorized to modify this booking", HttpStatus.FORBIDDEN),
     INVALID_BOOKING_STATUS(4007, "Invalid booking status", HttpStatus.BAD_REQUEST),
+    BOOKING_HOLD_NOT_FOUND(4008, "Booking hold not found or expired", HttpStatus.NOT_FOUND),
+    BOOKING_HELD(4009, "Vehicle is being held by another customer for these dates", HttpStatus.BAD_REQUEST),
+    BOOKING_HOLD_UNAVAILABLE(4010, "Booking holds are unavailable. Please try again later", HttpStatus.SERVICE_UNAVAILABLE),
 
     // --- PAYMENT ---
     PAYMENT_NOT_FOUND(5001, "Payment not found", HttpStatus.NOT_FOUND),
@@ -11,7 +11,16 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "bookings")
+@Table(
+        name = "bookings",
+        indexes = {
+                @Index(name = "idx_bookings_created_id", columnList = "created_at, id"),
+                @Index(name = "idx_bookings_user_created_id", columnList = "user_id, created_at, id"),
+                @Index(name = "idx_bookings_status_created_id", columnList = "status, created_at, id"),
+                @Index(name = "idx_bookings_vehicle_status_dates", columnList = "vehicle_id, status, start_date, end_date"),
+                @Index(name = "idx_bookings_model_status_dates", columnList = "vehicle_model_id, status, start_date, end_date")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -0,0 +1,35 @@
+package com.rent_vehicle.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vị trí đặt xe. code là tên đã bỏ dấu/chữ thường (LocationNormalizer.fold), dùng để tra cứu,
+ * name là tên hiển thị lần đầu được nhập.
+ */
+@Entity
+@Table(name = "locations")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class Location {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "code", unique = true, nullable = false)
+    String code;
+
+    @Column(name = "name", nullable = false)
+    String name;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    LocalDateTime createdAt;
+}
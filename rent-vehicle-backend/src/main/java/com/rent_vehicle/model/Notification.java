@@ -8,7 +8,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(
+        name = "notifications",
+        indexes = {
+                @Index(name = "idx_notifications_user_created_id", columnList = "user_id, created_at, id"),
+                @Index(name = "idx_notifications_user_status", columnList = "user_id, status")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -9,7 +9,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(
+        name = "payments",
+        indexes = {
+                @Index(name = "idx_payments_created_id", columnList = "created_at, id"),
+                @Index(name = "idx_payments_booking_method_status_created", columnList = "booking_id, method, status, created_at"),
+                @Index(name = "idx_payments_status_created", columnList = "status, created_at")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
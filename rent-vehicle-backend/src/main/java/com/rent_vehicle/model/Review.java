@@ -8,7 +8,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(
+        name = "reviews",
+        indexes = {
+                @Index(name = "idx_reviews_created_id", columnList = "created_at, id"),
+                @Index(name = "idx_reviews_rating_created", columnList = "rating, created_at")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -9,7 +9,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "vehicles")
+@Table(
+        name = "vehicles",
+        indexes = {
+                @Index(name = "idx_vehicles_model_status_location_id", columnList = "vehicle_model_id, status, location_id"),
+                @Index(name = "idx_vehicles_location_status", columnList = "location_id, status"),
+                @Index(name = "idx_vehicles_status", columnList = "status")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -27,9 +34,14 @@ public class Vehicle {
     @Column(name = "license_plate", unique = true, nullable = false)
     String licensePlate;
 
+    // Tên vị trí để hiển thị, luôn bằng locationRef.name với xe tạo mới; lọc/nhóm theo vị trí dùng location_id
     @Column(name = "location")
     String location;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id")
+    Location locationRef;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     VehicleStatus status;
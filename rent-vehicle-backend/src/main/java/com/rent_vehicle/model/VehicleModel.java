@@ -3,6 +3,7 @@ package com.rent_vehicle.model;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
@@ -10,7 +11,15 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "vehicle_models")
+@Table(
+        name = "vehicle_models",
+        indexes = {
+                @Index(name = "idx_vehicle_models_type_price", columnList = "vehicle_type_id, price_per_day"),
+                @Index(name = "idx_vehicle_models_brand_price", columnList = "brand, price_per_day"),
+                @Index(name = "idx_vehicle_models_price", columnList = "price_per_day"),
+                @Index(name = "idx_vehicle_models_name", columnList = "name")
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -53,6 +62,20 @@ public class VehicleModel {
     @Column(name = "created_at", nullable = false, updatable = false)
     LocalDateTime createdAt;
 
+    // Aggregate do VehicleModelStatsService duy trì bằng UPDATE nguyên tử,
+    // không ghi qua entity để tránh ghi đè số liệu mới bằng giá trị cũ
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    Long ratingSum;
+
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    Long ratingCount;
+
+    @Column(name = "completed_trip_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    Long completedTripCount;
+
     @OneToMany(mappedBy = "vehicleModel", cascade = CascadeType.ALL)
     List<Vehicle> vehicles;
 
@@ -1,19 +1,46 @@
 package com.rent_vehicle.repository;
 
 import com.rent_vehicle.model.Booking;
+import com.rent_vehicle.repository.projection.BookingIntervalView;
+import com.rent_vehicle.repository.projection.BookingListView;
+import com.rent_vehicle.repository.projection.ExpiredRowView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     long countByVehicleModelIdAndStatus(Long vehicleModelId, Booking.BookingStatus status);
 
+    /**
+     * Nạp booking cùng user, model, loại xe và xe trong một query (dùng cho xử lý theo lô)
+     */
+    @Query("""
+    SELECT b FROM Booking b
+    JOIN FETCH b.user
+    JOIN FETCH b.vehicleModel vm
+    JOIN FETCH vm.vehicleType
+    LEFT JOIN FETCH b.vehicle
+    WHERE b.id IN :ids
+    """)
+    List<Booking> findAllWithDetailsByIdIn(
+            @org.springframework.data.repository.query.Param("ids") Collection<Long> ids
+    );
+
     @Query("""
     SELECT b FROM Booking b
     WHERE b.vehicleModel.id = :vehicleModelId
@@ -27,6 +54,36 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             @org.springframework.data.repository.query.Param("endDate") LocalDate endDate
     );
 
+    /**
+     * Khóa dòng booking đến hết transaction (chỉ lấy id, không khóa các bảng join theo)
+     */
+    @Query(value = "SELECT id FROM bookings WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    /**
+     * Khóa các booking theo thứ tự id (duyệt theo lô), trả về id của các booking tồn tại
+     */
+    @Query(value = "SELECT id FROM bookings WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllById(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
+
+    /**
+     * Các booking approved của nhóm xe giao khoảng [fromDate, toDate], dựng lịch trong bộ nhớ khi duyệt theo lô
+     */
+    @Query("""
+    SELECT b.id AS id, b.user.id AS userId, b.vehicle.id AS vehicleId,
+           b.startDate AS startDate, b.endDate AS endDate, b.status AS status
+    FROM Booking b
+    WHERE b.vehicle.id IN :vehicleIds
+      AND b.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+      AND b.startDate <= :toDate
+      AND b.endDate >= :fromDate
+    """)
+    List<BookingIntervalView> findApprovedIntervals(
+            @org.springframework.data.repository.query.Param("vehicleIds") Collection<Long> vehicleIds,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
+            @org.springframework.data.repository.query.Param("toDate") LocalDate toDate
+    );
+
     @Query("""
     SELECT b FROM Booking b
     WHERE b.vehicle.id = :vehicleId
@@ -40,6 +97,19 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             @org.springframework.data.repository.query.Param("endDate") LocalDate endDate
     );
 
+    @Query("""
+    SELECT b.id AS id, b.user.id AS userId, b.vehicle.id AS vehicleId,
+           b.startDate AS startDate, b.endDate AS endDate, b.status AS status
+    FROM Booking b
+    WHERE b.vehicle IS NOT NULL
+      AND b.status IN :statuses
+      AND b.endDate >= :fromDate
+    """)
+    List<BookingIntervalView> findActiveIntervals(
+            @org.springframework.data.repository.query.Param("statuses") List<Booking.BookingStatus> statuses,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate
+    );
+
     long countByUserIdAndVehicleIdAndStartDateAndEndDateAndStatusIn(
             Long userId,
             Long vehicleId,
@@ -48,34 +118,148 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             List<Booking.BookingStatus> statuses
     );
 
+    @Query(value = """
+    SELECT b.id AS id, u.id AS userId, u.email AS userEmail,
+           m.id AS vehicleModelId, m.name AS vehicleModelName,
+           v.id AS vehicleId, v.licensePlate AS vehicleLicensePlate, v.location AS vehicleLocation,
+           b.paymentMethod AS paymentMethod, b.startDate AS startDate, b.endDate AS endDate,
+           b.totalPrice AS totalPrice, b.status AS status, b.createdAt AS createdAt
+    FROM Booking b
+    JOIN b.user u
+    JOIN b.vehicleModel m
+    LEFT JOIN b.vehicle v
+    WHERE (:status IS NULL OR b.status = :status)
+      AND (:fromDate IS NULL OR b.startDate >= :fromDate)
+      AND (:toDate IS NULL OR b.endDate <= :toDate)
+      AND (:userId IS NULL OR b.user.id = :userId)
+    """, countQuery = """
+    SELECT COUNT(b) FROM Booking b
+    WHERE (:status IS NULL OR b.status = :status)
+      AND (:fromDate IS NULL OR b.startDate >= :fromDate)
+      AND (:toDate IS NULL OR b.endDate <= :toDate)
+      AND (:userId IS NULL OR b.user.id = :userId)
+    """)
+    Page<BookingListView> filterBookings(
+            @org.springframework.data.repository.query.Param("status") Booking.BookingStatus status,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
+            @org.springframework.data.repository.query.Param("toDate") LocalDate toDate,
+            @org.springframework.data.repository.query.Param("userId") Long userId,
+            org.springframework.data.domain.Pageable pageable
+    );
+
+    /**
+     * Keyset pagination theo (createdAt DESC, id DESC): lấy các booking nằm sau cursor,
+     * không cần OFFSET hay COUNT
+     */
     @Query("""
-    SELECT b FROM Booking b
+    SELECT b.id AS id, u.id AS userId, u.email AS userEmail,
+           m.id AS vehicleModelId, m.name AS vehicleModelName,
+           v.id AS vehicleId, v.licensePlate AS vehicleLicensePlate, v.location AS vehicleLocation,
+           b.paymentMethod AS paymentMethod, b.startDate AS startDate, b.endDate AS endDate,
+           b.totalPrice AS totalPrice, b.status AS status, b.createdAt AS createdAt
+    FROM Booking b
+    JOIN b.user u
+    JOIN b.vehicleModel m
+    LEFT JOIN b.vehicle v
     WHERE (:status IS NULL OR b.status = :status)
       AND (:fromDate IS NULL OR b.startDate >= :fromDate)
       AND (:toDate IS NULL OR b.endDate <= :toDate)
       AND (:userId IS NULL OR b.user.id = :userId)
+      AND (b.createdAt < :cursorCreatedAt OR (b.createdAt = :cursorCreatedAt AND b.id < :cursorId))
+    ORDER BY b.createdAt DESC, b.id DESC
     """)
-    Page<Booking> filterBookings(
+    List<BookingListView> filterBookingsAfter(
             @org.springframework.data.repository.query.Param("status") Booking.BookingStatus status,
             @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
             @org.springframework.data.repository.query.Param("toDate") LocalDate toDate,
             @org.springframework.data.repository.query.Param("userId") Long userId,
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
             org.springframework.data.domain.Pageable pageable
     );
 
     @Query("""
-    SELECT b FROM Booking b
+    SELECT COUNT(b) FROM Booking b
+    WHERE (:status IS NULL OR b.status = :status)
+      AND (:fromDate IS NULL OR b.startDate >= :fromDate)
+      AND (:toDate IS NULL OR b.endDate <= :toDate)
+      AND (:userId IS NULL OR b.user.id = :userId)
+    """)
+    long countFilteredBookings(
+            @org.springframework.data.repository.query.Param("status") Booking.BookingStatus status,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
+            @org.springframework.data.repository.query.Param("toDate") LocalDate toDate,
+            @org.springframework.data.repository.query.Param("userId") Long userId
+    );
+
+    @Query(value = """
+    SELECT b.id AS id, u.id AS userId, u.email AS userEmail,
+           m.id AS vehicleModelId, m.name AS vehicleModelName,
+           v.id AS vehicleId, v.licensePlate AS vehicleLicensePlate, v.location AS vehicleLocation,
+           b.paymentMethod AS paymentMethod, b.startDate AS startDate, b.endDate AS endDate,
+           b.totalPrice AS totalPrice, b.status AS status, b.createdAt AS createdAt
+    FROM Booking b
+    JOIN b.user u
+    JOIN b.vehicleModel m
+    LEFT JOIN b.vehicle v
     WHERE b.user.id = :userId
       AND (:status IS NULL OR b.status = :status)
       AND (:fromDate IS NULL OR b.startDate >= :fromDate)
       AND (:toDate IS NULL OR b.endDate <= :toDate)
     ORDER BY b.createdAt DESC
+    """, countQuery = """
+    SELECT COUNT(b) FROM Booking b
+    WHERE b.user.id = :userId
+      AND (:status IS NULL OR b.status = :status)
+      AND (:fromDate IS NULL OR b.startDate >= :fromDate)
+      AND (:toDate IS NULL OR b.endDate <= :toDate)
     """)
-    Page<Booking> filterUserBookings(
+    Page<BookingListView> filterUserBookings(
             @org.springframework.data.repository.query.Param("userId") Long userId,
             @org.springframework.data.repository.query.Param("status") Booking.BookingStatus status,
             @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
             @org.springframework.data.repository.query.Param("toDate") LocalDate toDate,
             org.springframework.data.domain.Pageable pageable
     );
+
+    /**
+     * Khóa một lô booking pending đã quá hạn (tạo trước createdBefore hoặc đã qua ngày nhận xe),
+     * theo keyset (createdAt, id) tăng dần trên index (status, created_at, id).
+     * SKIP LOCKED (-2): booking đang được duyệt/hủy ở request khác được bỏ qua ở lượt này
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+    SELECT b.id AS id, b.createdAt AS createdAt FROM Booking b
+    WHERE b.status = com.rent_vehicle.model.Booking.BookingStatus.pending
+      AND (b.createdAt < :createdBefore OR b.startDate < :today)
+      AND (b.createdAt > :cursorCreatedAt OR (b.createdAt = :cursorCreatedAt AND b.id > :cursorId))
+    ORDER BY b.createdAt, b.id
+    """)
+    List<ExpiredRowView> lockExpiredPending(
+            @org.springframework.data.repository.query.Param("createdBefore") LocalDateTime createdBefore,
+            @org.springframework.data.repository.query.Param("today") LocalDate today,
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    @Query("""
+    SELECT COUNT(b) FROM Booking b
+    WHERE b.status = com.rent_vehicle.model.Booking.BookingStatus.pending
+      AND (b.createdAt < :createdBefore OR b.startDate < :today)
+    """)
+    long countExpiredPending(
+            @org.springframework.data.repository.query.Param("createdBefore") LocalDateTime createdBefore,
+            @org.springframework.data.repository.query.Param("today") LocalDate today
+    );
+
+    @Modifying
+    @Query("""
+    UPDATE Booking b
+    SET b.status = com.rent_vehicle.model.Booking.BookingStatus.canceled
+    WHERE b.id IN :ids
+      AND b.status = com.rent_vehicle.model.Booking.BookingStatus.pending
+    """)
+    int cancelPending(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
 }
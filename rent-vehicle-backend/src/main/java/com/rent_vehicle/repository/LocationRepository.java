@@ -0,0 +1,28 @@
+package com.rent_vehicle.repository;
+
+import com.rent_vehicle.model.Location;
+import com.rent_vehicle.repository.projection.LocationFleetView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LocationRepository extends JpaRepository<Location, Long> {
+    Optional<Location> findByCode(String code);
+
+    /**
+     * Mọi vị trí kèm số xe available, đếm trên index (location_id, status) của vehicles
+     */
+    @Query("""
+    SELECT l.id AS id, l.name AS name,
+           (SELECT COUNT(v) FROM Vehicle v
+            WHERE v.locationRef = l
+              AND v.status = com.rent_vehicle.model.Vehicle.VehicleStatus.available) AS availableVehicles
+    FROM Location l
+    ORDER BY l.name
+    """)
+    List<LocationFleetView> findAllWithFleetCounts();
+}
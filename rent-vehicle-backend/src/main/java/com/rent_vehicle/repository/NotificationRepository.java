@@ -4,8 +4,10 @@ import com.rent_vehicle.model.Notification;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +16,18 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     Optional<Notification> findByIdAndUserId(Long id, Long userId);
     List<Notification> findByUserIdAndStatus(Long userId, Notification.NotificationStatus status);
+    long countByUserId(Long userId);
+
+    @Query("""
+    SELECT n FROM Notification n
+    WHERE n.user.id = :userId
+      AND (n.createdAt < :cursorCreatedAt OR (n.createdAt = :cursorCreatedAt AND n.id < :cursorId))
+    ORDER BY n.createdAt DESC, n.id DESC
+    """)
+    List<Notification> findPageByUserIdAfter(
+            @org.springframework.data.repository.query.Param("userId") Long userId,
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
+            org.springframework.data.domain.Pageable pageable
+    );
 }
@@ -0,0 +1,15 @@
+package com.rent_vehicle.repository;
+
+import java.util.List;
+
+/**
+ * Ghi event outbox theo lô, bỏ qua persist của Hibernate: OutboxEvent dùng IDENTITY nên Hibernate
+ * phải INSERT từng dòng để lấy id, không thể gom batch
+ */
+public interface OutboxEventBatchRepository {
+
+    /**
+     * Thêm các event pending (message key = payload) cho một topic bằng một JDBC batch
+     */
+    void insertPending(String topic, List<String> payloads);
+}
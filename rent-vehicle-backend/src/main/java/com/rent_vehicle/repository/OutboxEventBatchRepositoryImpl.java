@@ -0,0 +1,40 @@
+package com.rent_vehicle.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OutboxEventBatchRepositoryImpl implements OutboxEventBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO outbox_events (topic, message_key, payload, status, attempts, next_attempt_at, created_at)
+            VALUES (?, ?, ?, 'pending', 0, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public void insertPending(String topic, List<String> payloads) {
+        if (payloads == null || payloads.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Với rewriteBatchedStatements=true, MySQL driver gộp mỗi batch thành một câu INSERT nhiều dòng
+        jdbcTemplate.batchUpdate(INSERT_SQL, payloads, batchSize, (statement, payload) -> {
+            statement.setString(1, topic);
+            statement.setString(2, payload);
+            statement.setString(3, payload);
+            statement.setTimestamp(4, now);
+            statement.setTimestamp(5, now);
+        });
+    }
+}
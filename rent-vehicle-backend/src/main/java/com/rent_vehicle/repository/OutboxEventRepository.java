@@ -0,0 +1,72 @@
+package com.rent_vehicle.repository;
+
+import com.rent_vehicle.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, OutboxEventBatchRepository {
+
+    /**
+     * Khóa một lô event đến hạn gửi; SKIP LOCKED (-2) để nhiều instance relay không lấy trùng event
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+    SELECT e FROM OutboxEvent e
+    WHERE e.status = com.rent_vehicle.model.OutboxEvent.OutboxStatus.pending
+      AND e.nextAttemptAt <= :now
+    ORDER BY e.id
+    """)
+    List<OutboxEvent> lockDueEvents(
+            @org.springframework.data.repository.query.Param("now") LocalDateTime now,
+            Pageable pageable
+    );
+
+    /**
+     * Dời hạn gửi của các event vừa khóa để instance khác không lấy lại trong lúc đang gửi ngoài transaction
+     */
+    @Modifying
+    @Query("""
+    UPDATE OutboxEvent e
+    SET e.nextAttemptAt = :leaseUntil
+    WHERE e.id IN :ids
+    """)
+    int claim(
+            @org.springframework.data.repository.query.Param("ids") Collection<Long> ids,
+            @org.springframework.data.repository.query.Param("leaseUntil") LocalDateTime leaseUntil
+    );
+
+    @Modifying
+    @Query("""
+    UPDATE OutboxEvent e
+    SET e.status = com.rent_vehicle.model.OutboxEvent.OutboxStatus.published,
+        e.publishedAt = :publishedAt,
+        e.attempts = e.attempts + 1,
+        e.lastError = NULL
+    WHERE e.id IN :ids
+    """)
+    int markPublished(
+            @org.springframework.data.repository.query.Param("ids") Collection<Long> ids,
+            @org.springframework.data.repository.query.Param("publishedAt") LocalDateTime publishedAt
+    );
+
+    @Modifying
+    @Query("""
+    DELETE FROM OutboxEvent e
+    WHERE e.status = com.rent_vehicle.model.OutboxEvent.OutboxStatus.published
+      AND e.publishedAt < :cutoff
+    """)
+    int deletePublishedBefore(@org.springframework.data.repository.query.Param("cutoff") LocalDateTime cutoff);
+}
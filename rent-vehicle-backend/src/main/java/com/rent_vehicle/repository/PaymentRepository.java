@@ -1,12 +1,23 @@
 package com.rent_vehicle.repository;
 
 import com.rent_vehicle.model.Payment;
+import com.rent_vehicle.repository.projection.ExpiredRowView;
+import com.rent_vehicle.repository.projection.PaymentExportRow;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -25,9 +36,71 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.status = 'success' ORDER BY p.createdAt DESC")
     List<Payment> findSuccessfulPayments();
     
-    @Query("SELECT p FROM Payment p WHERE p.status = 'pending' ORDER BY p.createdAt ASC")
-    List<Payment> findPendingPayments();
-    
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.status = 'success'")
     long countSuccessfulPayments();
+
+    @Query("""
+    SELECT p FROM Payment p
+    WHERE p.createdAt < :cursorCreatedAt OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)
+    ORDER BY p.createdAt DESC, p.id DESC
+    """)
+    List<Payment> findPageAfter(
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
+            org.springframework.data.domain.Pageable pageable
+    );
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("""
+    SELECT p.id AS id, p.booking.id AS bookingId, p.amount AS amount, p.method AS method,
+           p.status AS status, p.createdAt AS createdAt
+    FROM Payment p
+    ORDER BY p.id
+    """)
+    Stream<PaymentExportRow> streamAllForExport();
+
+    /**
+     * Khóa một lô payment pending của phương thức đã tạo trước createdBefore, theo keyset (createdAt, id)
+     * trên index (status, created_at). SKIP LOCKED (-2) để không chờ callback đang xử lý cùng payment
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+    SELECT p.id AS id, p.createdAt AS createdAt FROM Payment p
+    WHERE p.status = com.rent_vehicle.model.Payment.PaymentStatus.pending
+      AND p.method = :method
+      AND p.createdAt < :createdBefore
+      AND (p.createdAt > :cursorCreatedAt OR (p.createdAt = :cursorCreatedAt AND p.id > :cursorId))
+    ORDER BY p.createdAt, p.id
+    """)
+    List<ExpiredRowView> lockExpiredPending(
+            @org.springframework.data.repository.query.Param("method") Payment.PaymentMethod method,
+            @org.springframework.data.repository.query.Param("createdBefore") LocalDateTime createdBefore,
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    @Query("""
+    SELECT COUNT(p) FROM Payment p
+    WHERE p.status = com.rent_vehicle.model.Payment.PaymentStatus.pending
+      AND p.method = :method
+      AND p.createdAt < :createdBefore
+    """)
+    long countExpiredPending(
+            @org.springframework.data.repository.query.Param("method") Payment.PaymentMethod method,
+            @org.springframework.data.repository.query.Param("createdBefore") LocalDateTime createdBefore
+    );
+
+    @Modifying
+    @Query("""
+    UPDATE Payment p
+    SET p.status = com.rent_vehicle.model.Payment.PaymentStatus.failed
+    WHERE p.id IN :ids
+      AND p.status = com.rent_vehicle.model.Payment.PaymentStatus.pending
+    """)
+    int failPending(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
 }
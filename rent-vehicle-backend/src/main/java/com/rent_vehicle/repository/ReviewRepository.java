@@ -1,12 +1,17 @@
 package com.rent_vehicle.repository;
 
 import com.rent_vehicle.model.Review;
+import com.rent_vehicle.repository.projection.ReviewExportRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
@@ -26,4 +31,27 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findReviewsByMinRating(Integer minRating);
     
     long countByBookingVehicleModelId(Long vehicleModelId);
+
+    @Query("""
+    SELECT r FROM Review r
+    WHERE r.createdAt < :cursorCreatedAt OR (r.createdAt = :cursorCreatedAt AND r.id < :cursorId)
+    ORDER BY r.createdAt DESC, r.id DESC
+    """)
+    List<Review> findPageAfter(
+            @org.springframework.data.repository.query.Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @org.springframework.data.repository.query.Param("cursorId") Long cursorId,
+            org.springframework.data.domain.Pageable pageable
+    );
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("""
+    SELECT r.id AS id, r.booking.id AS bookingId, u.id AS userId, u.fullName AS userName,
+           r.rating AS rating, r.comment AS comment, r.createdAt AS createdAt
+    FROM Review r JOIN r.user u
+    ORDER BY r.id
+    """)
+    Stream<ReviewExportRow> streamAllForExport();
 }
@@ -1,12 +1,16 @@
 package com.rent_vehicle.repository;
 
 import com.rent_vehicle.model.User;
+import com.rent_vehicle.repository.projection.UserExportRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -24,4 +28,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     
     long countByRole(User.Role role);
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("""
+    SELECT u.id AS id, u.fullName AS fullName, u.email AS email, u.authProvider AS authProvider,
+           u.role AS role, u.status AS status, u.createdAt AS createdAt
+    FROM User u
+    ORDER BY u.id
+    """)
+    Stream<UserExportRow> streamAllForExport();
 }
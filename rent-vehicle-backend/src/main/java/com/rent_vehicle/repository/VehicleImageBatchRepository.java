@@ -0,0 +1,15 @@
+package com.rent_vehicle.repository;
+
+import java.util.List;
+
+/**
+ * Ghi ảnh theo lô, bỏ qua persist của Hibernate: VehicleImage dùng IDENTITY nên Hibernate phải
+ * INSERT từng dòng để lấy id, không thể gom batch
+ */
+public interface VehicleImageBatchRepository {
+
+    /**
+     * Thêm các ảnh cho một model bằng một JDBC batch, theo đúng thứ tự của danh sách
+     */
+    void insertImageUrls(Long vehicleModelId, List<String> imageUrls);
+}
@@ -0,0 +1,31 @@
+package com.rent_vehicle.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class VehicleImageBatchRepositoryImpl implements VehicleImageBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO vehicle_images (vehicle_model_id, image_url) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public void insertImageUrls(Long vehicleModelId, List<String> imageUrls) {
+        if (imageUrls == null || imageUrls.isEmpty()) {
+            return;
+        }
+
+        // Với rewriteBatchedStatements=true, MySQL driver gộp mỗi batch thành một câu INSERT nhiều dòng
+        jdbcTemplate.batchUpdate(INSERT_SQL, imageUrls, batchSize, (statement, imageUrl) -> {
+            statement.setLong(1, vehicleModelId);
+            statement.setString(2, imageUrl);
+        });
+    }
+}
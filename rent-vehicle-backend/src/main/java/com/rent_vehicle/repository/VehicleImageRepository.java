@@ -1,13 +1,26 @@
 package com.rent_vehicle.repository;
 
 import com.rent_vehicle.model.VehicleImage;
+import com.rent_vehicle.repository.projection.VehicleModelImageView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface VehicleImageRepository extends JpaRepository<VehicleImage, Long> {
+public interface VehicleImageRepository extends JpaRepository<VehicleImage, Long>, VehicleImageBatchRepository {
     List<VehicleImage> findByVehicleModelId(Long vehicleModelId);
     void deleteByVehicleModelId(Long vehicleModelId);
+
+    @Query("""
+    SELECT vi.vehicleModel.id AS vehicleModelId, vi.imageUrl AS imageUrl
+    FROM VehicleImage vi
+    WHERE vi.vehicleModel.id IN :vehicleModelIds
+    ORDER BY vi.id
+    """)
+    List<VehicleModelImageView> findImageUrlsByVehicleModelIds(
+            @org.springframework.data.repository.query.Param("vehicleModelIds") Collection<Long> vehicleModelIds
+    );
 }
@@ -4,6 +4,8 @@ import com.rent_vehicle.model.VehicleModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -11,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface VehicleModelRepository extends JpaRepository<VehicleModel, Long> {
+public interface VehicleModelRepository extends JpaRepository<VehicleModel, Long>, JpaSpecificationExecutor<VehicleModel> {
     Optional<VehicleModel> findByName(String name);
     
     List<VehicleModel> findByVehicleTypeId(Long vehicleTypeId);
@@ -22,6 +24,42 @@ public interface VehicleModelRepository extends JpaRepository<VehicleModel, Long
     
     @Query("SELECT vm FROM VehicleModel vm WHERE LOWER(vm.name) LIKE LOWER(CONCAT('%', ?1, '%')) OR LOWER(vm.brand) LIKE LOWER(CONCAT('%', ?1, '%'))")
     List<VehicleModel> searchByNameOrBrand(String keyword);
+
+    @Modifying
+    @Query("""
+    UPDATE VehicleModel vm
+    SET vm.ratingSum = vm.ratingSum + :ratingDelta,
+        vm.ratingCount = vm.ratingCount + :countDelta
+    WHERE vm.id = :vehicleModelId
+    """)
+    int adjustRatingAggregate(
+            @org.springframework.data.repository.query.Param("vehicleModelId") Long vehicleModelId,
+            @org.springframework.data.repository.query.Param("ratingDelta") long ratingDelta,
+            @org.springframework.data.repository.query.Param("countDelta") long countDelta
+    );
+
+    @Modifying
+    @Query("""
+    UPDATE VehicleModel vm
+    SET vm.completedTripCount = vm.completedTripCount + :delta
+    WHERE vm.id = :vehicleModelId
+    """)
+    int adjustCompletedTripCount(
+            @org.springframework.data.repository.query.Param("vehicleModelId") Long vehicleModelId,
+            @org.springframework.data.repository.query.Param("delta") long delta
+    );
+
+    @Modifying
+    @Query("""
+    UPDATE VehicleModel vm
+    SET vm.ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.booking.vehicleModel.id = vm.id),
+        vm.ratingCount = (SELECT COUNT(r) FROM Review r WHERE r.booking.vehicleModel.id = vm.id),
+        vm.completedTripCount = (
+            SELECT COUNT(b) FROM Booking b
+            WHERE b.vehicleModel.id = vm.id
+              AND b.status = com.rent_vehicle.model.Booking.BookingStatus.completed
+        )
+    """)
+    int rebuildAggregates();
     
-    Page<VehicleModel> findByNameLikeIgnoreCaseOrBrandLikeIgnoreCase(String name, String brand, Pageable pageable);
 }
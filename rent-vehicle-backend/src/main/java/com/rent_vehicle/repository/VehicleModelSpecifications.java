@@ -0,0 +1,80 @@
+package com.rent_vehicle.repository;
+
+import com.rent_vehicle.model.VehicleModel;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Các điều kiện lọc mẫu xe có thể kết hợp với nhau, được đẩy xuống SQL thay vì lọc trong Java
+ */
+public final class VehicleModelSpecifications {
+
+    private VehicleModelSpecifications() {
+    }
+
+    /**
+     * Kết hợp tất cả bộ lọc catalog; tham số null hoặc rỗng được bỏ qua
+     */
+    public static Specification<VehicleModel> catalogFilter(
+            String keyword,
+            Long vehicleTypeId,
+            String brand,
+            BigDecimal minPrice,
+            BigDecimal maxPrice
+    ) {
+        List<Specification<VehicleModel>> specs = new ArrayList<>();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            specs.add(nameOrBrandContains(keyword.trim()));
+        }
+        if (vehicleTypeId != null) {
+            specs.add(hasVehicleType(vehicleTypeId));
+        }
+        if (brand != null && !brand.trim().isEmpty()) {
+            specs.add(hasBrand(brand.trim()));
+        }
+        if (minPrice != null) {
+            specs.add(priceAtLeast(minPrice));
+        }
+        if (maxPrice != null) {
+            specs.add(priceAtMost(maxPrice));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<VehicleModel> nameOrBrandContains(String keyword) {
+        String pattern = "%" + escapeLike(keyword.toLowerCase()) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), pattern, '\\'),
+                cb.like(cb.lower(root.get("brand")), pattern, '\\')
+        );
+    }
+
+    public static Specification<VehicleModel> hasVehicleType(Long vehicleTypeId) {
+        return (root, query, cb) -> cb.equal(root.get("vehicleType").get("id"), vehicleTypeId);
+    }
+
+    /**
+     * So sánh trực tiếp trên cột brand để dùng được index; collation mặc định của MySQL
+     * (utf8mb4_0900_ai_ci) đã không phân biệt hoa thường
+     */
+    public static Specification<VehicleModel> hasBrand(String brand) {
+        return (root, query, cb) -> cb.equal(root.get("brand"), brand);
+    }
+
+    public static Specification<VehicleModel> priceAtLeast(BigDecimal minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("pricePerDay"), minPrice);
+    }
+
+    public static Specification<VehicleModel> priceAtMost(BigDecimal maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("pricePerDay"), maxPrice);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
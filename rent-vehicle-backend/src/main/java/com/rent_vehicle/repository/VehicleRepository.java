@@ -1,12 +1,25 @@
 package com.rent_vehicle.repository;
 
+import com.rent_vehicle.model.Location;
 import com.rent_vehicle.model.Vehicle;
+import com.rent_vehicle.repository.projection.FleetVehicleView;
+import com.rent_vehicle.repository.projection.ModelAvailabilityView;
+import com.rent_vehicle.repository.projection.VehicleModelLocationView;
+import com.rent_vehicle.repository.projection.VehicleExportRow;
+import com.rent_vehicle.repository.projection.VehicleFreeSlotView;
+import com.rent_vehicle.repository.projection.VehicleLockView;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
@@ -19,22 +32,196 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     @Query("SELECT v FROM Vehicle v WHERE v.vehicleModel.id = ?1 AND v.status = ?2")
     List<Vehicle> findAvailableByModelId(Long vehicleModelId, Vehicle.VehicleStatus status);
 
+    /**
+     * Lọc theo location_id để dùng index (vehicle_model_id, status, location_id);
+     * id lấy từ LocationService.find
+     */
     @Query("""
     SELECT v FROM Vehicle v
     WHERE v.vehicleModel.id = :vehicleModelId
       AND v.status = :status
-      AND LOWER(v.location) = LOWER(:location)
+      AND v.locationRef.id = :locationId
     """)
-    List<Vehicle> findAvailableByModelIdAndLocation(
+    List<Vehicle> findAvailableByModelIdAndLocationId(
             @org.springframework.data.repository.query.Param("vehicleModelId") Long vehicleModelId,
             @org.springframework.data.repository.query.Param("status") Vehicle.VehicleStatus status,
-            @org.springframework.data.repository.query.Param("location") String location
+            @org.springframework.data.repository.query.Param("locationId") Long locationId
     );
     
+    /**
+     * Các xe available của mẫu xe không có booking approved trùng khoảng [startDate, endDate],
+     * tính luôn khoảng trống trước/sau trong cùng một câu query
+     */
+    @Query("""
+    SELECT v.id AS vehicleId,
+           (SELECT MAX(p.endDate) FROM Booking p
+            WHERE p.vehicle = v
+              AND p.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+              AND p.endDate < :startDate) AS previousEndDate,
+           (SELECT MIN(n.startDate) FROM Booking n
+            WHERE n.vehicle = v
+              AND n.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+              AND n.startDate > :endDate) AS nextStartDate
+    FROM Vehicle v
+    WHERE v.vehicleModel.id = :vehicleModelId
+      AND v.status = com.rent_vehicle.model.Vehicle.VehicleStatus.available
+      AND NOT EXISTS (
+          SELECT 1 FROM Booking b
+          WHERE b.vehicle = v
+            AND b.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+            AND b.startDate <= :endDate
+            AND b.endDate >= :startDate
+      )
+    """)
+    List<VehicleFreeSlotView> findFreeSlots(
+            @org.springframework.data.repository.query.Param("vehicleModelId") Long vehicleModelId,
+            @org.springframework.data.repository.query.Param("startDate") LocalDate startDate,
+            @org.springframework.data.repository.query.Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Với mỗi xe: ngày kết thúc của booking approved gần nhất trước fromDate và ngày bắt đầu của
+     * booking approved gần nhất sau toDate (null nếu không có), dùng khi chọn xe cho cả lô booking
+     */
+    @Query("""
+    SELECT v.id AS vehicleId,
+           (SELECT MAX(p.endDate) FROM Booking p
+            WHERE p.vehicle = v
+              AND p.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+              AND p.endDate < :fromDate) AS previousEndDate,
+           (SELECT MIN(n.startDate) FROM Booking n
+            WHERE n.vehicle = v
+              AND n.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+              AND n.startDate > :toDate) AS nextStartDate
+    FROM Vehicle v
+    WHERE v.id IN :vehicleIds
+    """)
+    List<VehicleFreeSlotView> findApprovedNeighbours(
+            @org.springframework.data.repository.query.Param("vehicleIds") Collection<Long> vehicleIds,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
+            @org.springframework.data.repository.query.Param("toDate") LocalDate toDate
+    );
+
+    @Query("""
+    SELECT v.id AS vehicleId, m.id AS vehicleModelId, m.name AS vehicleModelName,
+           m.brand AS brand, m.pricePerDay AS pricePerDay, v.locationRef.id AS locationId
+    FROM Vehicle v JOIN v.vehicleModel m
+    WHERE v.status = com.rent_vehicle.model.Vehicle.VehicleStatus.available
+    """)
+    List<FleetVehicleView> findAvailableFleet();
+
+    /**
+     * Số xe available không có booking approved trùng khoảng ngày, theo từng mẫu xe
+     * @param locationId id vị trí, null để tìm mọi vị trí
+     */
+    @Query("""
+    SELECT m.id AS vehicleModelId, m.name AS vehicleModelName, m.brand AS brand,
+           m.pricePerDay AS pricePerDay, COUNT(v) AS availableVehicles
+    FROM Vehicle v JOIN v.vehicleModel m
+    WHERE v.status = com.rent_vehicle.model.Vehicle.VehicleStatus.available
+      AND (:locationId IS NULL OR v.locationRef.id = :locationId)
+      AND NOT EXISTS (
+          SELECT 1 FROM Booking b
+          WHERE b.vehicle = v
+            AND b.status = com.rent_vehicle.model.Booking.BookingStatus.approved
+            AND b.startDate <= :endDate
+            AND b.endDate >= :startDate
+      )
+    GROUP BY m.id, m.name, m.brand, m.pricePerDay
+    """)
+    List<ModelAvailabilityView> countFreeVehiclesByModel(
+            @org.springframework.data.repository.query.Param("locationId") Long locationId,
+            @org.springframework.data.repository.query.Param("startDate") LocalDate startDate,
+            @org.springframework.data.repository.query.Param("endDate") LocalDate endDate
+    );
+
     long countByVehicleModelIdAndStatus(Long vehicleModelId, Vehicle.VehicleStatus status);
 
+    /**
+     * Các tên vị trí (dạng chuỗi cũ) của những xe chưa gắn location_id, tên nhiều xe nhất trước
+     */
+    @Query("""
+    SELECT v.location FROM Vehicle v
+    WHERE v.locationRef IS NULL
+      AND v.location IS NOT NULL
+      AND TRIM(v.location) <> ''
+    GROUP BY v.location
+    ORDER BY COUNT(v) DESC
+    """)
+    List<String> findUnlinkedLocationNames();
+
+    /**
+     * Gắn location_id và đổi tên hiển thị về tên chuẩn cho các xe chưa gắn có cùng chuỗi location
+     */
+    @Modifying
+    @Query("""
+    UPDATE Vehicle v
+    SET v.locationRef = :locationRef, v.location = :canonicalName
+    WHERE v.locationRef IS NULL
+      AND v.location = :location
+    """)
+    int linkLocation(
+            @org.springframework.data.repository.query.Param("location") String location,
+            @org.springframework.data.repository.query.Param("locationRef") Location locationRef,
+            @org.springframework.data.repository.query.Param("canonicalName") String canonicalName
+    );
+
+    @Query("""
+    SELECT v.vehicleModel.id AS vehicleModelId, v.location AS location
+    FROM Vehicle v
+    WHERE v.vehicleModel.id IN :vehicleModelIds
+      AND v.location IS NOT NULL
+      AND TRIM(v.location) <> ''
+    ORDER BY v.id
+    """)
+    List<VehicleModelLocationView> findLocationsByVehicleModelIds(
+            @org.springframework.data.repository.query.Param("vehicleModelIds") Collection<Long> vehicleModelIds
+    );
+
     @Query("SELECT v FROM Vehicle v WHERE UPPER(v.licensePlate) LIKE UPPER(CONCAT('%', ?1, '%'))")
     List<Vehicle> findByLicensePlateLikeIgnoreCase(String keyword);
 
         org.springframework.data.domain.Page<Vehicle> findByLicensePlateContainingIgnoreCase(String keyword, org.springframework.data.domain.Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("""
+    SELECT v.id AS id, m.id AS vehicleModelId, m.name AS vehicleModelName, v.licensePlate AS licensePlate,
+           v.location AS location, v.status AS status, v.createdAt AS createdAt
+    FROM Vehicle v JOIN v.vehicleModel m
+    ORDER BY v.id
+    """)
+    Stream<VehicleExportRow> streamAllForExport();
+
+    /**
+     * Khóa dòng xe (SELECT ... FOR UPDATE) đến hết transaction, để việc đặt/duyệt lịch trên cùng
+     * một xe chạy tuần tự mà không ảnh hưởng các xe khác
+     */
+    @Query(value = "SELECT id FROM vehicles WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    /**
+     * Như lockById nhưng không chờ: trả về rỗng ngay nếu xe đang bị transaction khác khóa (SKIP LOCKED)
+     */
+    @Query(value = "SELECT id FROM vehicles WHERE id = :id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Long> tryLockById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    /**
+     * Khóa theo thứ tự id các xe được chỉ định và mọi xe available của các mẫu xe (duyệt booking theo lô);
+     * danh sách rỗng được thay bằng id không tồn tại vì MySQL không nhận IN ()
+     */
+    @Query(value = """
+    SELECT id AS vehicleId, vehicle_model_id AS vehicleModelId, status AS status
+    FROM vehicles
+    WHERE id IN (:vehicleIds)
+       OR (vehicle_model_id IN (:vehicleModelIds) AND status = 'available')
+    ORDER BY id
+    FOR UPDATE
+    """, nativeQuery = true)
+    List<VehicleLockView> lockForBulkApproval(
+            @org.springframework.data.repository.query.Param("vehicleIds") Collection<Long> vehicleIds,
+            @org.springframework.data.repository.query.Param("vehicleModelIds") Collection<Long> vehicleModelIds
+    );
 }
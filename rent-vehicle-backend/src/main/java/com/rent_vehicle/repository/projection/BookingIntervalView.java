@@ -0,0 +1,22 @@
+package com.rent_vehicle.repository.projection;
+
+import com.rent_vehicle.model.Booking;
+
+import java.time.LocalDate;
+
+/**
+ * Projection gọn của booking (chỉ các cột cần để kiểm tra trùng lịch)
+ */
+public interface BookingIntervalView {
+    Long getId();
+
+    Long getUserId();
+
+    Long getVehicleId();
+
+    LocalDate getStartDate();
+
+    LocalDate getEndDate();
+
+    Booking.BookingStatus getStatus();
+}
@@ -0,0 +1,40 @@
+package com.rent_vehicle.repository.projection;
+
+import com.rent_vehicle.model.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Booking kèm các cột của user, mẫu xe và xe cần cho danh sách, lấy trong một câu SQL
+ */
+public interface BookingListView {
+    Long getId();
+
+    Long getUserId();
+
+    String getUserEmail();
+
+    Long getVehicleModelId();
+
+    String getVehicleModelName();
+
+    Long getVehicleId();
+
+    String getVehicleLicensePlate();
+
+    String getVehicleLocation();
+
+    Booking.PaymentMethod getPaymentMethod();
+
+    LocalDate getStartDate();
+
+    LocalDate getEndDate();
+
+    BigDecimal getTotalPrice();
+
+    Booking.BookingStatus getStatus();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,12 @@
+package com.rent_vehicle.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dòng đã quá hạn được LifecycleSweeper khóa để xử lý; createdAt dùng làm keyset cho lô tiếp theo
+ */
+public interface ExpiredRowView {
+    Long getId();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,20 @@
+package com.rent_vehicle.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Xe đang available kèm thông tin giá của mẫu xe, dùng để dựng danh sách xe trong bộ nhớ cho tìm kiếm lịch trống
+ */
+public interface FleetVehicleView {
+    Long getVehicleId();
+
+    Long getVehicleModelId();
+
+    String getVehicleModelName();
+
+    String getBrand();
+
+    BigDecimal getPricePerDay();
+
+    Long getLocationId();
+}
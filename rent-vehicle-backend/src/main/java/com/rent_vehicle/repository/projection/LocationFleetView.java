@@ -0,0 +1,12 @@
+package com.rent_vehicle.repository.projection;
+
+/**
+ * Một vị trí và số xe available đang đặt tại đó
+ */
+public interface LocationFleetView {
+    Long getId();
+
+    String getName();
+
+    Long getAvailableVehicles();
+}
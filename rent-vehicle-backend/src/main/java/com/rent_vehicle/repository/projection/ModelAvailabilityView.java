@@ -0,0 +1,18 @@
+package com.rent_vehicle.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Số xe còn trống của một mẫu xe trong khoảng ngày tìm kiếm
+ */
+public interface ModelAvailabilityView {
+    Long getVehicleModelId();
+
+    String getVehicleModelName();
+
+    String getBrand();
+
+    BigDecimal getPricePerDay();
+
+    Long getAvailableVehicles();
+}
@@ -0,0 +1,23 @@
+package com.rent_vehicle.repository.projection;
+
+import com.rent_vehicle.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng của file export thanh toán
+ */
+public interface PaymentExportRow {
+    Long getId();
+
+    Long getBookingId();
+
+    BigDecimal getAmount();
+
+    Payment.PaymentMethod getMethod();
+
+    Payment.PaymentStatus getStatus();
+
+    LocalDateTime getCreatedAt();
+}
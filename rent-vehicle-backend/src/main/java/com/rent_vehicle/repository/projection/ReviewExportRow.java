@@ -0,0 +1,22 @@
+package com.rent_vehicle.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng của file export đánh giá, kèm tên người đánh giá
+ */
+public interface ReviewExportRow {
+    Long getId();
+
+    Long getBookingId();
+
+    Long getUserId();
+
+    String getUserName();
+
+    Integer getRating();
+
+    String getComment();
+
+    LocalDateTime getCreatedAt();
+}
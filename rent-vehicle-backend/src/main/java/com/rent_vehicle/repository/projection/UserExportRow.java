@@ -0,0 +1,24 @@
+package com.rent_vehicle.repository.projection;
+
+import com.rent_vehicle.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng của file export người dùng (không gồm mật khẩu)
+ */
+public interface UserExportRow {
+    Long getId();
+
+    String getFullName();
+
+    String getEmail();
+
+    String getAuthProvider();
+
+    User.Role getRole();
+
+    User.Status getStatus();
+
+    LocalDateTime getCreatedAt();
+}
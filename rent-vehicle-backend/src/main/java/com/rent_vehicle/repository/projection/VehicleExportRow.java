@@ -0,0 +1,24 @@
+package com.rent_vehicle.repository.projection;
+
+import com.rent_vehicle.model.Vehicle;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng của file export xe, kèm tên mẫu xe
+ */
+public interface VehicleExportRow {
+    Long getId();
+
+    Long getVehicleModelId();
+
+    String getVehicleModelName();
+
+    String getLicensePlate();
+
+    String getLocation();
+
+    Vehicle.VehicleStatus getStatus();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,15 @@
+package com.rent_vehicle.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Xe còn trống trong khoảng ngày yêu cầu, kèm booking đã duyệt liền trước và liền sau khoảng đó
+ * (null nếu không có) để đánh giá độ vừa khít của lịch
+ */
+public interface VehicleFreeSlotView {
+    Long getVehicleId();
+
+    LocalDate getPreviousEndDate();
+
+    LocalDate getNextStartDate();
+}
@@ -0,0 +1,12 @@
+package com.rent_vehicle.repository.projection;
+
+/**
+ * Xe đã khóa (SELECT ... FOR UPDATE) khi duyệt booking theo lô
+ */
+public interface VehicleLockView {
+    Long getVehicleId();
+
+    Long getVehicleModelId();
+
+    String getStatus();
+}
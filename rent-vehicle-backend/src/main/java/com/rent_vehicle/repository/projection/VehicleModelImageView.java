@@ -0,0 +1,10 @@
+package com.rent_vehicle.repository.projection;
+
+/**
+ * Ảnh của mẫu xe, chỉ gồm id mẫu xe và URL
+ */
+public interface VehicleModelImageView {
+    Long getVehicleModelId();
+
+    String getImageUrl();
+}
@@ -0,0 +1,10 @@
+package com.rent_vehicle.repository.projection;
+
+/**
+ * Vị trí của một xe thuộc mẫu xe, dùng để hiển thị địa điểm của mẫu xe
+ */
+public interface VehicleModelLocationView {
+    Long getVehicleModelId();
+
+    String getLocation();
+}
@@ -0,0 +1,207 @@
+package com.rent_vehicle.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near-cache các JTI đã bị thu hồi, để trường hợp phổ biến (token chưa bị thu hồi) được trả lời
+ * trong bộ nhớ thay vì gọi Redis hasKey ở mỗi request.
+ *
+ * Tập local được nạp bằng SCAN khi khởi động, cập nhật qua Redis pub/sub mỗi khi có token bị
+ * blacklist, và được đồng bộ lại định kỳ để bù cho message bị mất. Chỉ khi JTI có trong tập local
+ * (probable hit) thì Redis mới được hỏi lại để xác nhận. Khi chưa sẵn sàng hoặc tập quá lớn,
+ * mọi lookup đều quay về Redis.
+ */
+@Component
+@Slf4j
+public class AccessTokenBlacklistCache implements MessageListener {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Counter localMissCounter;
+    private final Counter confirmedHitCounter;
+    private final Counter falsePositiveCounter;
+    private final Counter fallbackCounter;
+    private final Timer propagationLagTimer;
+
+    private final Map<String, Long> revokedUntil = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    @Value("${app.auth.blacklist-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.auth.blacklist-cache.channel:auth:blacklist}")
+    private String channel;
+
+    @Value("${app.auth.blacklist-cache.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${jwt.access-token-duration:900}")
+    private long accessTokenDuration;
+
+    public AccessTokenBlacklistCache(RedisTemplate<String, String> redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.localMissCounter = lookupCounter(meterRegistry, "local_miss");
+        this.confirmedHitCounter = lookupCounter(meterRegistry, "confirmed_hit");
+        this.falsePositiveCounter = lookupCounter(meterRegistry, "false_positive");
+        this.fallbackCounter = lookupCounter(meterRegistry, "fallback");
+        this.propagationLagTimer = Timer.builder("auth.blacklist.propagation.lag")
+                .description("Time between blacklisting a token and this node receiving the event")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Listener container đã subscribe xong trước ApplicationReadyEvent, nên sau khi nạp snapshot
+     * không còn khoảng hở nào mà revoke bị bỏ sót. Nếu SCAN lỗi thì cache chưa sẵn sàng (mọi lookup
+     * vẫn hỏi Redis) cho đến lần resync thành công tiếp theo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            log.info("Access token blacklist near-cache is disabled, every lookup uses Redis");
+            return;
+        }
+        if (!resync()) {
+            log.warn("Access token blacklist near-cache is not ready, lookups use Redis until a resync succeeds");
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ blacklist từ Redis để bù cho message pub/sub bị mất (ví dụ lúc reconnect)
+     */
+    @Scheduled(fixedDelayString = "${app.auth.blacklist-cache.resync-interval-ms:60000}",
+            initialDelayString = "${app.auth.blacklist-cache.resync-interval-ms:60000}")
+    public void scheduledResync() {
+        resync();
+    }
+
+    /**
+     * @return true nếu đã SCAN hết blacklist; chỉ khi đó cache mới được đánh dấu sẵn sàng
+     */
+    public boolean resync() {
+        if (!enabled) {
+            return false;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        // TTL thật của từng key không cần thiết: entry chỉ là dấu hiệu "có thể đã thu hồi",
+        // nên dùng thời hạn tối đa của access token làm cận trên
+        long expiresAt = startedAt + TimeUnit.SECONDS.toMillis(accessTokenDuration);
+        int loaded = 0;
+
+        ScanOptions options = ScanOptions.scanOptions().match(TokenService.BLACKLIST_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                revokedUntil.putIfAbsent(cursor.next().substring(TokenService.BLACKLIST_PREFIX.length()), expiresAt);
+                loaded++;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to resync access token blacklist from Redis", e);
+            return false;
+        }
+
+        purgeExpired();
+        ready = true;
+        log.debug("Resynced {} blacklisted access tokens in {} ms", loaded, System.currentTimeMillis() - startedAt);
+        return true;
+    }
+
+    /**
+     * Trả về false nếu chắc chắn token chưa bị thu hồi; true nghĩa là cần hỏi Redis để xác nhận
+     */
+    public boolean mightBeRevoked(String jti) {
+        if (!enabled || !ready || revokedUntil.size() > maxEntries) {
+            fallbackCounter.increment();
+            return true;
+        }
+
+        Long expiresAt = revokedUntil.get(jti);
+        if (expiresAt == null || expiresAt <= System.currentTimeMillis()) {
+            localMissCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ghi nhận kết quả xác nhận từ Redis cho một probable hit. Entry của false positive không bị xóa
+     * (tự hết hạn): xóa ở đây có thể đè mất một publishRevoked của cùng JTI xảy ra sau khi Redis trả lời
+     */
+    public void recordConfirmation(String jti, boolean revoked) {
+        if (revoked) {
+            confirmedHitCounter.increment();
+            return;
+        }
+        falsePositiveCounter.increment();
+    }
+
+    /**
+     * Thêm vào tập local rồi broadcast cho các node khác; gọi sau khi key blacklist đã được ghi vào Redis
+     */
+    public void publishRevoked(String jti, long remainingTtlSeconds) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAt = now + TimeUnit.SECONDS.toMillis(remainingTtlSeconds);
+        revokedUntil.put(jti, expiresAt);
+        try {
+            redisTemplate.convertAndSend(channel, jti + "|" + expiresAt + "|" + now);
+        } catch (Exception e) {
+            // Các node khác sẽ nhận được ở lần resync tiếp theo
+            log.warn("Failed to broadcast revoked access token {}", jti, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed blacklist event");
+            return;
+        }
+
+        try {
+            revokedUntil.put(parts[0], Long.parseLong(parts[1]));
+            long lag = System.currentTimeMillis() - Long.parseLong(parts[2]);
+            propagationLagTimer.record(Duration.ofMillis(Math.max(lag, 0)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed blacklist event");
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedUntil.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.blacklist.lookups")
+                .description("Access token blacklist lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -17,6 +17,8 @@ import org.springframework.stereotype.Service;
 import java.util.Optional;
 import java.util.Map;
 import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -95,12 +97,18 @@ public class AuthService {
         String otpCode = generateOtpCode();
         tokenService.saveAdminOtp(normalizedUsername, otpCode);
         try {
-            emailService.sendAdminLoginOtpEmail(
+            CompletableFuture<Void> delivery = emailService.sendAdminLoginOtpEmail(
                     user.getEmail(),
                     user.getFullName(),
                     otpCode,
                     tokenService.getAdminOtpDuration()
             );
+            invalidateOtpOnDeliveryFailure(
+                    delivery,
+                    otpCode,
+                    () -> tokenService.getAdminOtp(normalizedUsername),
+                    () -> tokenService.deleteAdminOtp(normalizedUsername)
+            );
         } catch (RuntimeException exception) {
             tokenService.deleteAdminOtp(normalizedUsername);
             throw exception;
@@ -151,12 +159,18 @@ public class AuthService {
         String otpCode = generateOtpCode();
         tokenService.savePasswordChangeOtp(user.getEmail(), otpCode);
         try {
-            emailService.sendPasswordChangeOtpEmail(
+            CompletableFuture<Void> delivery = emailService.sendPasswordChangeOtpEmail(
                     user.getEmail(),
                     user.getFullName(),
                     otpCode,
                     tokenService.getPasswordOtpDuration()
             );
+            invalidateOtpOnDeliveryFailure(
+                    delivery,
+                    otpCode,
+                    () -> tokenService.getPasswordChangeOtp(user.getEmail()),
+                    () -> tokenService.deletePasswordChangeOtp(user.getEmail())
+            );
         } catch (RuntimeException exception) {
             tokenService.deletePasswordChangeOtp(user.getEmail());
             throw exception;
@@ -226,12 +240,18 @@ public class AuthService {
         String otpCode = generateOtpCode();
         tokenService.savePasswordResetOtp(user.getEmail(), otpCode);
         try {
-            emailService.sendPasswordResetOtpEmail(
+            CompletableFuture<Void> delivery = emailService.sendPasswordResetOtpEmail(
                     user.getEmail(),
                     user.getFullName(),
                     otpCode,
                     tokenService.getPasswordOtpDuration()
             );
+            invalidateOtpOnDeliveryFailure(
+                    delivery,
+                    otpCode,
+                    () -> tokenService.getPasswordResetOtp(user.getEmail()),
+                    () -> tokenService.deletePasswordResetOtp(user.getEmail())
+            );
         } catch (RuntimeException exception) {
             tokenService.deletePasswordResetOtp(user.getEmail());
             throw exception;
@@ -418,6 +438,30 @@ public class AuthService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Email được gửi bất đồng bộ: nếu cuối cùng không gửi được thì hủy OTP, trừ khi người dùng
+     * đã yêu cầu mã mới trong lúc chờ
+     */
+    private void invalidateOtpOnDeliveryFailure(
+            CompletableFuture<Void> delivery,
+            String otpCode,
+            Supplier<String> currentOtp,
+            Runnable deleteOtp
+    ) {
+        delivery.whenComplete((ignored, exception) -> {
+            if (exception == null) {
+                return;
+            }
+            try {
+                if (otpCode.equals(currentOtp.get())) {
+                    deleteOtp.run();
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Failed to invalidate OTP after email delivery failure", ex);
+            }
+        });
+    }
+
     private String generateOtpCode() {
         int otp = 100000 + SECURE_RANDOM.nextInt(900000);
         return String.valueOf(otp);
@@ -0,0 +1,484 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.model.Booking;
+import com.rent_vehicle.repository.BookingRepository;
+import com.rent_vehicle.repository.projection.BookingIntervalView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục lịch đặt xe trong bộ nhớ (theo từng xe) cho các booking pending/approved.
+ * Được nạp khi khởi động từ BookingRepository và cập nhật sau khi transaction ghi booking commit,
+ * giúp kiểm tra trùng lịch trong createBooking không cần query MySQL.
+ *
+ * Mỗi thay đổi được broadcast qua Redis pub/sub để index của các node khác cập nhật theo, và toàn bộ
+ * index được nạp lại từ database sau mỗi resync-interval-ms để bù cho message bị mất.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingAvailabilityIndex implements MessageListener {
+
+    private static final List<Booking.BookingStatus> TRACKED_STATUSES =
+            List.of(Booking.BookingStatus.pending, Booking.BookingStatus.approved);
+
+    // Số ngày bitmap của mỗi xe lưu được kể từ ngày nạp index; ngày xa hơn được kiểm tra trên TreeMap
+    private static final int BITMAP_DAYS = 3660;
+
+    private static final String TRACK_EVENT = "T";
+    private static final String UNTRACK_EVENT = "U";
+    private static final String NO_VEHICLE = "-";
+
+    private final BookingRepository bookingRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    // Bỏ qua message do chính node này gửi (đã áp dụng trước khi publish)
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${app.booking.availability-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.booking.availability-index.channel:booking-index:changes}")
+    private String channel;
+
+    private volatile Map<Long, VehicleCalendar> calendars = new ConcurrentHashMap<>();
+    private volatile Map<Long, Long> vehicleIdByBookingId = new ConcurrentHashMap<>();
+    // Booking thay đổi trong lúc đang nạp lại, giữ trạng thái hiện tại thay vì snapshot cũ hơn
+    private final Set<Long> changedDuringReload = ConcurrentHashMap.newKeySet();
+    private volatile boolean reloading = false;
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            log.info("Booking availability index is disabled, conflict checks use the database");
+            return;
+        }
+        reload();
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ database để bù cho message pub/sub bị mất
+     */
+    @Scheduled(fixedDelayString = "${app.booking.availability-index.resync-interval-ms:300000}",
+            initialDelayString = "${app.booking.availability-index.resync-interval-ms:300000}")
+    public void resync() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Index chỉ được dùng khi đã bật và đã nạp xong, ngược lại caller phải kiểm tra bằng database
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Tương đương BookingRepository.findConflictingBookingsByVehicleId: có booking approved nào giao khoảng ngày không
+     */
+    public boolean hasApprovedConflict(Long vehicleId, LocalDate startDate, LocalDate endDate) {
+        VehicleCalendar calendar = calendars.get(vehicleId);
+        if (calendar == null) {
+            return false;
+        }
+        if (!calendar.bitmapCovers(startDate, endDate)) {
+            // Bitmap không lưu các ngày trước lần nạp gần nhất và sau BITMAP_DAYS
+            return calendar.anyOverlap(startDate, endDate,
+                    interval -> interval.status() == Booking.BookingStatus.approved);
+        }
+        return calendar.hasApprovedDay(startDate, endDate);
+    }
+
+    /**
+     * Tương đương countByUserIdAndVehicleIdAndStartDateAndEndDateAndStatusIn(pending, approved) > 0
+     */
+    public boolean hasDuplicate(Long userId, Long vehicleId, LocalDate startDate, LocalDate endDate) {
+        VehicleCalendar calendar = calendars.get(vehicleId);
+        return calendar != null && calendar.anyOverlap(startDate, endDate,
+                interval -> interval.userId().equals(userId)
+                        && interval.startDate().equals(startDate)
+                        && interval.endDate().equals(endDate));
+    }
+
+    /**
+     * Ghi nhận trạng thái mới của booking. Nếu đang trong transaction thì chỉ áp dụng (và broadcast)
+     * sau khi commit để rollback không làm sai lệch chỉ mục.
+     */
+    public void track(Booking booking) {
+        if (!enabled || booking == null || booking.getId() == null) {
+            return;
+        }
+
+        Long vehicleId = booking.getVehicle() != null ? booking.getVehicle().getId() : null;
+        BookingInterval interval = new BookingInterval(
+                booking.getId(),
+                booking.getUser().getId(),
+                booking.getStartDate(),
+                booking.getEndDate(),
+                booking.getStatus()
+        );
+
+        runAfterCommit(() -> {
+            apply(vehicleId, interval);
+            publish(String.join("|", TRACK_EVENT,
+                    vehicleId != null ? String.valueOf(vehicleId) : NO_VEHICLE,
+                    String.valueOf(interval.bookingId()),
+                    String.valueOf(interval.userId()),
+                    String.valueOf(interval.startDate().toEpochDay()),
+                    String.valueOf(interval.endDate().toEpochDay()),
+                    interval.status().name()));
+        });
+    }
+
+    /**
+     * Gỡ các booking không còn pending/approved, dùng khi trạng thái được đổi bằng UPDATE hàng loạt
+     * (không có entity để gọi track). Trong transaction thì chỉ áp dụng sau khi commit.
+     */
+    public void untrack(Collection<Long> bookingIds) {
+        if (!enabled || bookingIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = List.copyOf(bookingIds);
+        runAfterCommit(() -> {
+            detachAll(ids);
+            publish(UNTRACK_EVENT + "|" + ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        });
+    }
+
+    /**
+     * Nhận thay đổi từ các node khác: "nodeId|T|vehicleId|bookingId|userId|startDay|endDay|status"
+     * hoặc "nodeId|U|id,id,..."
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!enabled) {
+            return;
+        }
+
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length < 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+
+        try {
+            if (TRACK_EVENT.equals(parts[1]) && parts.length == 8) {
+                apply(
+                        NO_VEHICLE.equals(parts[2]) ? null : Long.parseLong(parts[2]),
+                        new BookingInterval(
+                                Long.parseLong(parts[3]),
+                                Long.parseLong(parts[4]),
+                                LocalDate.ofEpochDay(Long.parseLong(parts[5])),
+                                LocalDate.ofEpochDay(Long.parseLong(parts[6])),
+                                Booking.BookingStatus.valueOf(parts[7])
+                        )
+                );
+            } else if (UNTRACK_EVENT.equals(parts[1])) {
+                detachAll(Arrays.stream(parts[2].split(",")).map(Long::parseLong).toList());
+            } else {
+                log.warn("Ignoring malformed booking index event");
+            }
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring malformed booking index event: {}", ex.getMessage());
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Dựng index mới từ snapshot của database rồi thay thế index hiện tại. Booking thay đổi trong lúc
+     * đọc snapshot giữ trạng thái hiện tại vì snapshot có thể đã cũ hơn.
+     */
+    private void reload() {
+        long startedAt = System.currentTimeMillis();
+        synchronized (this) {
+            changedDuringReload.clear();
+            reloading = true;
+        }
+
+        LocalDate origin = LocalDate.now();
+        List<BookingIntervalView> intervals;
+        try {
+            intervals = bookingRepository.findActiveIntervals(TRACKED_STATUSES, origin);
+        } catch (RuntimeException ex) {
+            // Chưa nạp được lần nào thì vẫn chưa sẵn sàng, các kiểm tra tiếp tục chạy trên database
+            log.warn("Failed to load booking availability index: {}", ex.getMessage());
+            synchronized (this) {
+                reloading = false;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            Map<Long, VehicleCalendar> freshCalendars = new ConcurrentHashMap<>();
+            Map<Long, Long> freshVehicleIds = new ConcurrentHashMap<>();
+
+            for (BookingIntervalView interval : intervals) {
+                if (changedDuringReload.contains(interval.getId())) {
+                    continue;
+                }
+                insert(freshCalendars, freshVehicleIds, origin, interval.getVehicleId(), new BookingInterval(
+                        interval.getId(),
+                        interval.getUserId(),
+                        interval.getStartDate(),
+                        interval.getEndDate(),
+                        interval.getStatus()
+                ));
+            }
+            for (Long bookingId : changedDuringReload) {
+                Long vehicleId = vehicleIdByBookingId.get(bookingId);
+                VehicleCalendar calendar = vehicleId != null ? calendars.get(vehicleId) : null;
+                BookingInterval current = calendar != null ? calendar.get(bookingId) : null;
+                if (current != null) {
+                    insert(freshCalendars, freshVehicleIds, origin, vehicleId, current);
+                }
+            }
+
+            calendars = freshCalendars;
+            vehicleIdByBookingId = freshVehicleIds;
+            changedDuringReload.clear();
+            reloading = false;
+            ready = true;
+        }
+
+        log.info("Booking availability index loaded {} bookings for {} vehicles in {} ms",
+                intervals.size(), calendars.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+
+        action.run();
+    }
+
+    private void publish(String event) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + "|" + event);
+        } catch (Exception ex) {
+            // Các node khác sẽ thấy thay đổi ở lần resync tiếp theo
+            log.warn("Failed to broadcast booking index change: {}", ex.getMessage());
+        }
+    }
+
+    private synchronized void apply(Long vehicleId, BookingInterval interval) {
+        markChanged(interval.bookingId());
+        // Booking có thể đã được gán sang xe khác, nên gỡ khỏi lịch cũ trước khi thêm lại
+        removeFromCalendar(interval.bookingId());
+        if (vehicleId != null && TRACKED_STATUSES.contains(interval.status())) {
+            LocalDate origin = ready ? null : LocalDate.now();
+            insert(calendars, vehicleIdByBookingId, origin, vehicleId, interval);
+        }
+    }
+
+    private synchronized void detachAll(Collection<Long> bookingIds) {
+        for (Long bookingId : bookingIds) {
+            markChanged(bookingId);
+            removeFromCalendar(bookingId);
+        }
+    }
+
+    private void markChanged(Long bookingId) {
+        if (reloading) {
+            changedDuringReload.add(bookingId);
+        }
+    }
+
+    private void removeFromCalendar(Long bookingId) {
+        Long previousVehicleId = vehicleIdByBookingId.remove(bookingId);
+        if (previousVehicleId != null) {
+            VehicleCalendar previousCalendar = calendars.get(previousVehicleId);
+            if (previousCalendar != null) {
+                previousCalendar.remove(bookingId);
+            }
+        }
+    }
+
+    /**
+     * @param origin Mốc bitmap cho lịch mới tạo; null để dùng mốc của lần nạp gần nhất
+     */
+    private void insert(
+            Map<Long, VehicleCalendar> targetCalendars,
+            Map<Long, Long> targetVehicleIds,
+            LocalDate origin,
+            Long vehicleId,
+            BookingInterval interval
+    ) {
+        LocalDate bitmapOrigin = origin != null ? origin : currentOrigin();
+        targetCalendars.computeIfAbsent(vehicleId, id -> new VehicleCalendar(bitmapOrigin)).put(interval);
+        targetVehicleIds.put(interval.bookingId(), vehicleId);
+    }
+
+    private LocalDate currentOrigin() {
+        return calendars.values().stream()
+                .findAny()
+                .map(VehicleCalendar::origin)
+                .orElseGet(LocalDate::now);
+    }
+
+    private record BookingInterval(
+            Long bookingId,
+            Long userId,
+            LocalDate startDate,
+            LocalDate endDate,
+            Booking.BookingStatus status
+    ) {
+    }
+
+    /**
+     * Lịch của một xe: các khoảng được sắp theo ngày bắt đầu. Vì biết độ dài khoảng lớn nhất,
+     * truy vấn giao nhau chỉ cần duyệt subMap [start - maxSpan, end] nên chi phí là O(log n + k);
+     * độ dài lớn nhất được tính lại khi gỡ booking nên một booking dài không làm chậm mãi về sau.
+     * Các ngày đã có booking approved được đánh dấu thêm trong một bitmap (một bit mỗi ngày kể từ
+     * origin, tối đa BITMAP_DAYS bit) để kiểm tra xe trống chỉ tốn một lần nextSetBit.
+     */
+    private static final class VehicleCalendar {
+        private final NavigableMap<LocalDate, Map<Long, BookingInterval>> byStartDate = new TreeMap<>();
+        private final Map<Long, BookingInterval> byBookingId = new HashMap<>();
+        // Độ dài khoảng -> số booking có độ dài đó
+        private final NavigableMap<Long, Integer> spanCounts = new TreeMap<>();
+        private final BitSet approvedDays = new BitSet();
+        private final LocalDate origin;
+
+        VehicleCalendar(LocalDate origin) {
+            this.origin = origin;
+        }
+
+        LocalDate origin() {
+            return origin;
+        }
+
+        synchronized BookingInterval get(Long bookingId) {
+            return byBookingId.get(bookingId);
+        }
+
+        synchronized void put(BookingInterval interval) {
+            byBookingId.put(interval.bookingId(), interval);
+            byStartDate.computeIfAbsent(interval.startDate(), date -> new HashMap<>())
+                    .put(interval.bookingId(), interval);
+            spanCounts.merge(spanDays(interval), 1, Integer::sum);
+            if (interval.status() == Booking.BookingStatus.approved) {
+                markApproved(interval);
+            }
+        }
+
+        synchronized void remove(Long bookingId) {
+            BookingInterval existing = byBookingId.remove(bookingId);
+            if (existing == null) {
+                return;
+            }
+
+            Map<Long, BookingInterval> sameStart = byStartDate.get(existing.startDate());
+            if (sameStart != null) {
+                sameStart.remove(bookingId);
+                if (sameStart.isEmpty()) {
+                    byStartDate.remove(existing.startDate());
+                }
+            }
+            spanCounts.computeIfPresent(spanDays(existing), (span, count) -> count > 1 ? count - 1 : null);
+
+            if (existing.status() == Booking.BookingStatus.approved) {
+                int from = Math.max(dayIndex(existing.startDate()), 0);
+                int to = Math.min(dayIndex(existing.endDate()), BITMAP_DAYS - 1);
+                if (to >= from) {
+                    approvedDays.clear(from, to + 1);
+                }
+                // Dữ liệu cũ có thể có booking approved chồng nhau, đánh dấu lại phần còn lại
+                forEachOverlap(existing.startDate(), existing.endDate(), interval -> {
+                    if (interval.status() == Booking.BookingStatus.approved) {
+                        markApproved(interval);
+                    }
+                    return false;
+                });
+            }
+        }
+
+        boolean bitmapCovers(LocalDate startDate, LocalDate endDate) {
+            return !startDate.isBefore(origin) && endDate.isBefore(origin.plusDays(BITMAP_DAYS));
+        }
+
+        /**
+         * Chỉ gọi khi bitmapCovers(startDate, endDate)
+         */
+        synchronized boolean hasApprovedDay(LocalDate startDate, LocalDate endDate) {
+            int from = Math.max(dayIndex(startDate), 0);
+            int next = approvedDays.nextSetBit(from);
+            return next >= 0 && next <= dayIndex(endDate);
+        }
+
+        synchronized boolean anyOverlap(LocalDate startDate, LocalDate endDate,
+                                        Predicate<BookingInterval> filter) {
+            return forEachOverlap(startDate, endDate, filter);
+        }
+
+        private boolean forEachOverlap(LocalDate startDate, LocalDate endDate, Predicate<BookingInterval> filter) {
+            long maxSpanDays = spanCounts.isEmpty() ? 0 : spanCounts.lastKey();
+            LocalDate lowerBound = startDate.minusDays(maxSpanDays);
+            for (Map<Long, BookingInterval> bucket : byStartDate.subMap(lowerBound, true, endDate, true).values()) {
+                for (BookingInterval interval : bucket.values()) {
+                    if (!interval.endDate().isBefore(startDate) && filter.test(interval)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void markApproved(BookingInterval interval) {
+            int from = Math.max(dayIndex(interval.startDate()), 0);
+            int to = Math.min(dayIndex(interval.endDate()), BITMAP_DAYS - 1);
+            if (to >= from) {
+                approvedDays.set(from, to + 1);
+            }
+        }
+
+        /**
+         * Vị trí bit của ngày, giới hạn trong [-1, BITMAP_DAYS] để ngày quá xa không tràn int
+         */
+        private int dayIndex(LocalDate date) {
+            return Math.clamp(ChronoUnit.DAYS.between(origin, date), -1, BITMAP_DAYS);
+        }
+
+        private static long spanDays(BookingInterval interval) {
+            return ChronoUnit.DAYS.between(interval.startDate(), interval.endDate());
+        }
+    }
+}
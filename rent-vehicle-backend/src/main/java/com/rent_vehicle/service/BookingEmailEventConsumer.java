@@ -4,9 +4,30 @@ import com.rent_vehicle.model.Booking;
 import com.rent_vehicle.repository.BookingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Xử lý event booking-approved theo lô: nạp toàn bộ booking của một lần poll bằng một query,
+ * đưa toàn bộ email vào MailDispatcher rồi chờ kết quả, và chỉ trả về (để container commit offset) khi
+ * mọi record đã gửi thành công hoặc đã được đẩy sang dead-letter topic.
+ *
+ * Cả lô dùng chung một deadline send-timeout-seconds (không phải mỗi email một timeout), để thời gian
+ * xử lý một lần poll luôn nằm dưới max.poll.interval.ms; email chưa gửi xong khi hết hạn được đẩy sang DLT.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -14,29 +35,83 @@ public class BookingEmailEventConsumer {
 
     private final BookingRepository bookingRepository;
     private final EmailService emailService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${app.kafka.topics.booking-approved-email-dlt:booking-approved-email.DLT}")
+    private String deadLetterTopic;
+
+    @Value("${app.kafka.booking-email.send-timeout-seconds:60}")
+    private long sendTimeoutSeconds;
 
     @KafkaListener(
             topics = "${app.kafka.topics.booking-approved-email:booking-approved-email}",
             groupId = "${spring.kafka.consumer.group-id:test-group}",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "bookingEmailBatchListenerContainerFactory"
     )
-    public void onBookingApproved(String payload) {
-        Long bookingId = parseBookingId(payload);
-        if (bookingId == null) {
-            return;
+    public void onBookingApproved(List<ConsumerRecord<String, String>> records) {
+        Map<Long, ConsumerRecord<String, String>> recordsByBookingId = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            Long bookingId = parseBookingId(record.value());
+            if (bookingId != null) {
+                // Event trùng trong cùng lô (ví dụ do outbox gửi lại) chỉ gửi một email
+                recordsByBookingId.putIfAbsent(bookingId, record);
+            }
         }
 
-        Booking booking = bookingRepository.findById(bookingId).orElse(null);
-        if (booking == null) {
-            log.warn("Skip booking-approved email because booking {} was not found", bookingId);
+        if (recordsByBookingId.isEmpty()) {
             return;
         }
 
+        Map<Long, Booking> bookings = bookingRepository.findAllWithDetailsByIdIn(recordsByBookingId.keySet()).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<Long> bookingIds = new ArrayList<>();
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (Long bookingId : recordsByBookingId.keySet()) {
+            Booking booking = bookings.get(bookingId);
+            if (booking == null) {
+                log.warn("Skip booking-approved email because booking {} was not found", bookingId);
+                continue;
+            }
+            bookingIds.add(bookingId);
+            try {
+                sends.add(emailService.sendBookingApprovedEmail(booking));
+            } catch (RuntimeException ex) {
+                // Hàng đợi gửi mail đã đầy, ghi nhận như một lần gửi lỗi
+                sends.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(sendTimeoutSeconds);
+        for (int i = 0; i < sends.size(); i++) {
+            Long bookingId = bookingIds.get(i);
+            try {
+                long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+                sends.get(i).get(remaining, TimeUnit.MILLISECONDS);
+                log.info("Booking-approved email sent for booking {}", bookingId);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                deadLetter(records, recordsByBookingId.get(bookingId), ex);
+            } catch (Exception ex) {
+                log.warn("Failed to send booking-approved email for booking {}", bookingId, ex);
+                deadLetter(records, recordsByBookingId.get(bookingId), ex);
+            }
+        }
+    }
+
+    /**
+     * Đẩy record lỗi sang DLT một cách đồng bộ; nếu không đẩy được thì báo cho error handler
+     * để lô được xử lý lại từ record này, tránh commit offset của record chưa xử lý xong
+     */
+    private void deadLetter(List<ConsumerRecord<String, String>> records, ConsumerRecord<String, String> record, Exception cause) {
         try {
-            emailService.sendBookingApprovedEmail(booking);
-            log.info("Booking-approved email sent for booking {}", bookingId);
+            kafkaTemplate.send(deadLetterTopic, record.key(), record.value()).get(sendTimeoutSeconds, TimeUnit.SECONDS);
+            log.warn("Routed booking-approved event at offset {} to {}", record.offset(), deadLetterTopic);
         } catch (Exception ex) {
-            log.warn("Failed to send booking-approved email for booking {}", bookingId, ex);
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new BatchListenerFailedException("Failed to dead-letter booking-approved event", cause, records.indexOf(record));
         }
     }
 
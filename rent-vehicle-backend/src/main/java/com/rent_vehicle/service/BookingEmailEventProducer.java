@@ -1,67 +1,57 @@
 package com.rent_vehicle.service;
 
+import com.rent_vehicle.model.OutboxEvent;
+import com.rent_vehicle.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Ghi event booking vào bảng outbox trong transaction của nghiệp vụ; OutboxRelay sẽ gửi lên Kafka sau.
+ * Event chỉ tồn tại khi transaction commit, và không bị mất khi broker tạm thời không khả dụng.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BookingEmailEventProducer {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
 
     @Value("${app.kafka.topics.booking-approved-email:booking-approved-email}")
     private String bookingApprovedEmailTopic;
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publishBookingApproved(Long bookingId) {
         if (bookingId == null) {
             log.warn("Skip publishing booking-approved event because bookingId is null");
             return;
         }
 
-        Runnable publishAction = () -> doPublishBookingApproved(bookingId);
-
-        if (TransactionSynchronizationManager.isSynchronizationActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    publishAction.run();
-                }
-            });
-            return;
-        }
-
-        publishAction.run();
-    }
-
-    private void doPublishBookingApproved(Long bookingId) {
         String payload = String.valueOf(bookingId);
-        kafkaTemplate.send(bookingApprovedEmailTopic, payload)
-                .whenComplete((result, throwable) -> {
-                    if (throwable != null) {
-                        log.warn(
-                                "Failed to publish booking-approved event for booking {} to topic {}",
-                                bookingId,
-                                bookingApprovedEmailTopic,
-                                throwable
-                        );
-                        return;
-                    }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(bookingApprovedEmailTopic)
+                .messageKey(payload)
+                .payload(payload)
+                .status(OutboxEvent.OutboxStatus.pending)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+    }
 
-                    if (result != null) {
-                        log.info(
-                                "Published booking-approved event for booking {} to topic {} partition {} offset {}",
-                                bookingId,
-                                bookingApprovedEmailTopic,
-                                result.getRecordMetadata().partition(),
-                                result.getRecordMetadata().offset()
-                        );
-                    }
-                });
+    /**
+     * Giống publishBookingApproved cho nhiều booking, ghi outbox bằng một JDBC batch
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishBookingsApproved(Collection<Long> bookingIds) {
+        outboxEventRepository.insertPending(
+                bookingApprovedEmailTopic,
+                bookingIds.stream().map(String::valueOf).toList()
+        );
     }
 }
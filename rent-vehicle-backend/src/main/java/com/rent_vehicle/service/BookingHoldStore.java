@@ -0,0 +1,231 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Giữ chỗ ngắn hạn (xe, khoảng ngày) trên Redis trong lúc khách thanh toán.
+ *
+ * Mỗi xe có một hash booking-hold:vehicle:{vehicleId} (holdId -> "userId|startDay|endDay|expiresAtMs"),
+ * mỗi hold có một hash booking-hold:{holdId} chứa đủ thông tin để tạo booking. Việc kiểm tra trùng
+ * và ghi hold chạy trong một Lua script nên hai khách giữ cùng khoảng ngày chỉ có một người thành công,
+ * không cần query MySQL. Script tự ghép key nên chỉ dùng với Redis đơn (không chạy trên Redis Cluster).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingHoldStore {
+
+    private static final String VEHICLE_HOLDS_PREFIX = "booking-hold:vehicle:";
+    private static final String HOLD_PREFIX = "booking-hold:";
+
+    // Dọn hold hết hạn của xe, từ chối nếu còn hold khác giao khoảng ngày; cùng user giữ lại đúng
+    // khoảng ngày cũ thì trả về hold đang có. Trả về holdId hoặc nil nếu bị trùng
+    // KEYS: vehicleHoldsKey, holdKey | ARGV: holdId, userId, startDay, endDay, nowMs, expiresAtMs, ttlMs,
+    //       vehicleModelId, vehicleId, paymentMethod
+    private static final RedisScript<String> PLACE_HOLD_SCRIPT = RedisScript.of("""
+            local holds = redis.call('HGETALL', KEYS[1])
+            local startDay = tonumber(ARGV[3])
+            local endDay = tonumber(ARGV[4])
+            for i = 1, #holds, 2 do
+                local userId, heldStart, heldEnd, expiresAt = string.match(holds[i + 1], '^(%d+)|(%-?%d+)|(%-?%d+)|(%d+)$')
+                if tonumber(expiresAt) <= tonumber(ARGV[5]) then
+                    redis.call('HDEL', KEYS[1], holds[i])
+                elseif tonumber(heldStart) <= endDay and tonumber(heldEnd) >= startDay then
+                    if userId == ARGV[2] and tonumber(heldStart) == startDay and tonumber(heldEnd) == endDay then
+                        return holds[i]
+                    end
+                    return false
+                end
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. '|' .. ARGV[3] .. '|' .. ARGV[4] .. '|' .. ARGV[6])
+            if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[7]) then
+                redis.call('PEXPIRE', KEYS[1], ARGV[7])
+            end
+            redis.call('HSET', KEYS[2], 'userId', ARGV[2], 'vehicleModelId', ARGV[8], 'vehicleId', ARGV[9],
+                    'startDay', ARGV[3], 'endDay', ARGV[4], 'paymentMethod', ARGV[10], 'expiresAt', ARGV[6])
+            redis.call('PEXPIRE', KEYS[2], ARGV[7])
+            return ARGV[1]
+            """, String.class);
+
+    // KEYS: holdKey | ARGV: vehicleHoldsPrefix, holdId
+    private static final RedisScript<Long> RELEASE_HOLD_SCRIPT = RedisScript.of("""
+            local vehicleId = redis.call('HGET', KEYS[1], 'vehicleId')
+            if not vehicleId then
+                return 0
+            end
+            redis.call('HDEL', ARGV[1] .. vehicleId, ARGV[2])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${app.booking.hold.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public record BookingHold(
+            String id,
+            Long userId,
+            Long vehicleModelId,
+            Long vehicleId,
+            LocalDate startDate,
+            LocalDate endDate,
+            String paymentMethod,
+            LocalDateTime expiresAt
+    ) {
+    }
+
+    /**
+     * Đặt hold cho (xe, khoảng ngày)
+     * @return Hold đã đặt (hoặc hold cũ của cùng user với cùng khoảng ngày), rỗng nếu khoảng ngày đang bị giữ
+     */
+    public Optional<BookingHold> place(
+            Long userId,
+            Long vehicleModelId,
+            Long vehicleId,
+            LocalDate startDate,
+            LocalDate endDate,
+            String paymentMethod
+    ) {
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlSeconds * 1000;
+        String holdId = UUID.randomUUID().toString();
+
+        String placedId;
+        try {
+            placedId = redisTemplate.execute(
+                    PLACE_HOLD_SCRIPT,
+                    List.of(VEHICLE_HOLDS_PREFIX + vehicleId, HOLD_PREFIX + holdId),
+                    holdId,
+                    String.valueOf(userId),
+                    String.valueOf(startDate.toEpochDay()),
+                    String.valueOf(endDate.toEpochDay()),
+                    String.valueOf(now),
+                    String.valueOf(now + ttlMillis),
+                    String.valueOf(ttlMillis),
+                    String.valueOf(vehicleModelId),
+                    String.valueOf(vehicleId),
+                    paymentMethod
+            );
+        } catch (Exception ex) {
+            log.error("Failed to place booking hold on vehicle {}", vehicleId, ex);
+            throw new AppException(ErrorCode.BOOKING_HOLD_UNAVAILABLE);
+        }
+
+        if (placedId == null) {
+            return Optional.empty();
+        }
+        if (placedId.equals(holdId)) {
+            return Optional.of(new BookingHold(holdId, userId, vehicleModelId, vehicleId, startDate, endDate,
+                    paymentMethod, toDateTime(now + ttlMillis)));
+        }
+        return find(placedId);
+    }
+
+    /**
+     * @return Hold còn hạn, rỗng nếu không có hoặc đã hết hạn
+     */
+    public Optional<BookingHold> find(String holdId) {
+        Map<Object, Object> fields;
+        try {
+            fields = redisTemplate.opsForHash().entries(HOLD_PREFIX + holdId);
+        } catch (Exception ex) {
+            log.error("Failed to read booking hold {}", holdId, ex);
+            throw new AppException(ErrorCode.BOOKING_HOLD_UNAVAILABLE);
+        }
+
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        long expiresAt = Long.parseLong((String) fields.get("expiresAt"));
+        if (expiresAt <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new BookingHold(
+                holdId,
+                Long.parseLong((String) fields.get("userId")),
+                Long.parseLong((String) fields.get("vehicleModelId")),
+                Long.parseLong((String) fields.get("vehicleId")),
+                LocalDate.ofEpochDay(Long.parseLong((String) fields.get("startDay"))),
+                LocalDate.ofEpochDay(Long.parseLong((String) fields.get("endDay"))),
+                (String) fields.get("paymentMethod"),
+                toDateTime(expiresAt)
+        ));
+    }
+
+    /**
+     * Có hold còn hạn của user khác giao khoảng ngày không. Lỗi Redis được bỏ qua (trả về false):
+     * hold chỉ để giảm tranh chấp, kiểm tra trùng lịch vẫn chạy trên database
+     */
+    public boolean isHeldByOthers(Long vehicleId, Long userId, LocalDate startDate, LocalDate endDate) {
+        List<Object> holds;
+        try {
+            holds = redisTemplate.opsForHash().values(VEHICLE_HOLDS_PREFIX + vehicleId);
+        } catch (Exception ex) {
+            log.warn("Skipping booking hold check on vehicle {}: {}", vehicleId, ex.getMessage());
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        for (Object value : holds) {
+            String[] parts = ((String) value).split("\\|");
+            if (Long.parseLong(parts[3]) > now
+                    && !parts[0].equals(String.valueOf(userId))
+                    && Long.parseLong(parts[1]) <= endDay
+                    && Long.parseLong(parts[2]) >= startDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void release(String holdId) {
+        try {
+            redisTemplate.execute(RELEASE_HOLD_SCRIPT, List.of(HOLD_PREFIX + holdId), VEHICLE_HOLDS_PREFIX, holdId);
+        } catch (Exception ex) {
+            // Hold tự hết hạn sau ttl-seconds
+            log.warn("Failed to release booking hold {}: {}", holdId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Bỏ hold sau khi transaction hiện tại commit; rollback thì hold được giữ để khách thử lại
+     */
+    public void releaseAfterCommit(String holdId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(holdId);
+                }
+            });
+            return;
+        }
+
+        release(holdId);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -1,7 +1,12 @@
 package com.rent_vehicle.service;
 
+import com.rent_vehicle.dto.request.BulkApproveBookingsRequest;
 import com.rent_vehicle.dto.request.CreateBookingRequest;
+import com.rent_vehicle.dto.response.BookingApprovalResult;
+import com.rent_vehicle.dto.response.BookingHoldResponse;
 import com.rent_vehicle.dto.response.BookingResponse;
+import com.rent_vehicle.dto.response.BulkApproveBookingsResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
@@ -13,20 +18,36 @@ import com.rent_vehicle.repository.BookingRepository;
 import com.rent_vehicle.repository.UserRepository;
 import com.rent_vehicle.repository.VehicleModelRepository;
 import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.repository.projection.BookingListView;
+import com.rent_vehicle.repository.projection.VehicleFreeSlotView;
+import com.rent_vehicle.repository.projection.VehicleLockView;
+import com.rent_vehicle.util.PageCursor;
 import com.rent_vehicle.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,79 +55,51 @@ import java.util.stream.Collectors;
 @Transactional
 @Slf4j
 public class BookingService {
+
+    private static final long OPEN_CALENDAR_DAYS = 3650;
+
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final VehicleModelRepository vehicleModelRepository;
     private final VehicleRepository vehicleRepository;
     private final BookingEmailEventProducer bookingEmailEventProducer;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final BookingHoldStore bookingHoldStore;
 
+    @Value("${app.booking.bulk-approve.max-size:500}")
+    private int bulkApproveMaxSize;
+
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
     public BookingResponse createBooking(CreateBookingRequest request) {
-        if (request.getVehicleModelId() == null || request.getVehicleId() == null
-                || request.getStartDate() == null || request.getEndDate() == null) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
+        validateBookingRequest(request);
 
         Long userId = SecurityUtils.getCurrentUserId();
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
 
-        VehicleModel vehicleModel = vehicleModelRepository.findById(request.getVehicleModelId())
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
-
-        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
-
-        if (!vehicle.getVehicleModel().getId().equals(vehicleModel.getId())) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
-
-        if (!vehicle.getStatus().equals(Vehicle.VehicleStatus.available)) {
-            throw new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE);
-        }
-
-        if (request.getStartDate().isAfter(request.getEndDate())) {
-            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
-        }
-
-        if (request.getStartDate().isBefore(LocalDate.now())) {
-            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
-        }
+        Vehicle vehicle = loadBookableVehicle(request);
+        VehicleModel vehicleModel = vehicle.getVehicleModel();
 
         Booking.PaymentMethod paymentMethod = parsePaymentMethod(request.getPaymentMethod());
 
-        long duplicateCount = bookingRepository.countByUserIdAndVehicleIdAndStartDateAndEndDateAndStatusIn(
-                user.getId(),
-                vehicle.getId(),
-                request.getStartDate(),
-                request.getEndDate(),
-                List.of(Booking.BookingStatus.pending, Booking.BookingStatus.approved)
-        );
-        if (duplicateCount > 0) {
-            throw new AppException(ErrorCode.BOOKING_CONFLICT);
+        // Khách khác đang giữ chỗ (đang thanh toán) cho khoảng ngày này
+        if (bookingHoldStore.isHeldByOthers(vehicle.getId(), user.getId(), request.getStartDate(), request.getEndDate())) {
+            throw new AppException(ErrorCode.BOOKING_HELD);
         }
 
-        String bookingLocation = normalizeLocation(vehicle.getLocation());
-        if (bookingLocation == null) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
+        if (hasDuplicateBooking(user.getId(), vehicle.getId(), request.getStartDate(), request.getEndDate())) {
+            throw new AppException(ErrorCode.BOOKING_CONFLICT);
         }
 
-        List<Vehicle> availableVehiclesAtLocation = vehicleRepository.findAvailableByModelIdAndLocation(
-                request.getVehicleModelId(),
-                Vehicle.VehicleStatus.available,
-                bookingLocation
-        );
-        if (availableVehiclesAtLocation.isEmpty()) {
-            throw new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE);
+        if (hasApprovedConflict(vehicle.getId(), request.getStartDate(), request.getEndDate())) {
+            throw new AppException(ErrorCode.BOOKING_CONFLICT);
         }
 
-        List<Booking> conflicts = bookingRepository.findConflictingBookingsByVehicleId(
-                request.getVehicleId(),
-                request.getStartDate(),
-                request.getEndDate()
-        );
-
-        if (!conflicts.isEmpty()) {
+        // Chỉ mục trong bộ nhớ được cập nhật sau commit nên có thể trễ so với request song song;
+        // khóa xe rồi kiểm tra lại trùng lặp trên database
+        lockVehicle(vehicle.getId());
+        if (countDuplicateBookings(user.getId(), vehicle.getId(), request.getStartDate(), request.getEndDate()) > 0) {
             throw new AppException(ErrorCode.BOOKING_CONFLICT);
         }
 
@@ -129,11 +122,91 @@ public class BookingService {
                 .build();
 
         Booking saved = bookingRepository.save(booking);
+        bookingAvailabilityIndex.track(saved);
         return toResponse(saved);
     }
 
+    /**
+     * Giữ chỗ (xe, khoảng ngày) trong app.booking.hold.ttl-seconds trong lúc khách thanh toán.
+     * Redis được kiểm tra trước: nếu khách khác đang giữ khoảng ngày thì từ chối ngay mà không chạm
+     * tới MySQL; chỉ hold đặt được mới đi tiếp tới kiểm tra xe và lịch đã duyệt.
+     * Không mở transaction để request bị từ chối không phải lấy connection từ pool
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
+    public BookingHoldResponse placeHold(CreateBookingRequest request) {
+        validateBookingRequest(request);
+        Booking.PaymentMethod paymentMethod = parsePaymentMethod(request.getPaymentMethod());
+        Long userId = SecurityUtils.getCurrentUserId();
+
+        BookingHoldStore.BookingHold hold = bookingHoldStore.place(
+                        userId,
+                        request.getVehicleModelId(),
+                        request.getVehicleId(),
+                        request.getStartDate(),
+                        request.getEndDate(),
+                        paymentMethod.name()
+                )
+                .orElseThrow(() -> new AppException(ErrorCode.BOOKING_HELD));
+
+        Vehicle vehicle;
+        try {
+            vehicle = loadBookableVehicle(request);
+            if (hasApprovedConflict(vehicle.getId(), request.getStartDate(), request.getEndDate())) {
+                throw new AppException(ErrorCode.BOOKING_CONFLICT);
+            }
+        } catch (AppException ex) {
+            bookingHoldStore.release(hold.id());
+            throw ex;
+        }
+
+        long days = ChronoUnit.DAYS.between(hold.startDate(), hold.endDate());
+        return BookingHoldResponse.builder()
+                .holdId(hold.id())
+                .vehicleModelId(hold.vehicleModelId())
+                .vehicleId(hold.vehicleId())
+                .startDate(hold.startDate())
+                .endDate(hold.endDate())
+                .paymentMethod(hold.paymentMethod())
+                .totalPrice(vehicle.getVehicleModel().getPricePerDay().multiply(BigDecimal.valueOf(days)))
+                .expiresAt(hold.expiresAt())
+                .build();
+    }
+
+    /**
+     * Tạo booking từ hold của chính user; hold được bỏ sau khi booking commit
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
+    public BookingResponse confirmHold(String holdId) {
+        BookingHoldStore.BookingHold hold = findOwnHold(holdId);
+
+        BookingResponse response = createBooking(CreateBookingRequest.builder()
+                .vehicleModelId(hold.vehicleModelId())
+                .vehicleId(hold.vehicleId())
+                .startDate(hold.startDate())
+                .endDate(hold.endDate())
+                .paymentMethod(hold.paymentMethod())
+                .build());
+
+        bookingHoldStore.releaseAfterCommit(hold.id());
+        return response;
+    }
+
+    @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
+    public void releaseHold(String holdId) {
+        bookingHoldStore.release(findOwnHold(holdId).id());
+    }
+
+    /**
+     * Duyệt booking. Booking và xe được khóa theo thứ tự booking -> xe, kiểm tra trùng lịch chạy
+     * với READ_COMMITTED để thấy các lượt duyệt vừa commit trên cùng xe
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     @PreAuthorize("hasAuthority('ADMIN')")
     public BookingResponse approveBooking(Long bookingId) {
+        bookingRepository.lockById(bookingId)
+                .orElseThrow(() -> new AppException(ErrorCode.BOOKING_NOT_FOUND));
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_NOT_FOUND));
 
@@ -142,34 +215,124 @@ public class BookingService {
         }
 
         if (booking.getVehicle() == null) {
+            // Xe được chọn đã bị khóa và kiểm tra trùng lịch bên trong
             Vehicle assignedVehicle = findAvailableVehicleForBooking(booking);
             booking.setVehicle(assignedVehicle);
+        } else {
+            lockVehicle(booking.getVehicle().getId());
+
+            List<Booking> conflicts = bookingRepository.findConflictingBookingsByVehicleId(
+                    booking.getVehicle().getId(),
+                    booking.getStartDate(),
+                    booking.getEndDate()
+            );
+
+            if (!conflicts.isEmpty()) {
+                throw new AppException(ErrorCode.BOOKING_CONFLICT);
+            }
         }
 
-        List<Booking> conflicts = bookingRepository.findConflictingBookingsByVehicleId(
-                booking.getVehicle().getId(),
-                booking.getStartDate(),
-                booking.getEndDate()
-        );
+        booking.setStatus(Booking.BookingStatus.approved);
+        Booking saved = bookingRepository.save(booking);
+        bookingAvailabilityIndex.track(saved);
 
-        if (!conflicts.isEmpty()) {
-            throw new AppException(ErrorCode.BOOKING_CONFLICT);
+        // Ghi vào outbox trong cùng transaction, OutboxRelay sẽ gửi lên Kafka
+        bookingEmailEventProducer.publishBookingApproved(saved.getId());
+
+        return toResponse(saved);
+    }
+
+    /**
+     * Duyệt nhiều booking trong một transaction, kết quả trả về theo từng booking (booking lỗi không
+     * làm hỏng các booking còn lại).
+     *
+     * Thứ tự khóa giống approveBooking (booking -> xe) nhưng mỗi bước là một câu query theo lô, sắp
+     * theo id để hai lượt duyệt chồng nhau không deadlock. Lịch approved của các xe liên quan được nạp
+     * một lần rồi kiểm tra trùng/chọn xe trong bộ nhớ, booking tạo trước được xét trước và booking vừa
+     * duyệt được ghi ngay vào lịch nên các booking trong cùng lô không trùng nhau. UPDATE booking được
+     * Hibernate gom batch, outbox được ghi bằng một JDBC batch.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public BulkApproveBookingsResponse approveBookings(BulkApproveBookingsRequest request) {
+        if (request == null || request.getBookingIds() == null || request.getBookingIds().isEmpty()
+                || request.getBookingIds().stream().anyMatch(Objects::isNull)) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+        Set<Long> requestedIds = new LinkedHashSet<>(request.getBookingIds());
+        if (requestedIds.size() > bulkApproveMaxSize) {
+            throw new AppException(ErrorCode.INVALID_REQUEST,
+                    "At most " + bulkApproveMaxSize + " bookings can be approved at once");
         }
 
-        booking.setStatus(Booking.BookingStatus.approved);
-        Booking saved = bookingRepository.save(booking);
+        Map<Long, ErrorCode> failures = new HashMap<>();
+        List<Long> lockedIds = bookingRepository.lockAllById(requestedIds);
+        List<Booking> pending = new ArrayList<>();
+        for (Booking booking : bookingRepository.findAllWithDetailsByIdIn(lockedIds)) {
+            if (booking.getStatus() == Booking.BookingStatus.pending) {
+                pending.add(booking);
+            } else {
+                failures.put(booking.getId(), ErrorCode.INVALID_BOOKING_STATUS);
+            }
+        }
+        pending.sort(Comparator.comparing(Booking::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Booking::getId));
+
+        Map<Long, Long> approvedVehicleIds = assignVehicles(pending, failures);
+
+        List<Long> approvedIds = new ArrayList<>();
+        for (Booking booking : pending) {
+            Long vehicleId = approvedVehicleIds.get(booking.getId());
+            if (vehicleId == null) {
+                continue;
+            }
+            if (booking.getVehicle() == null) {
+                booking.setVehicle(vehicleRepository.getReferenceById(vehicleId));
+            }
+            // Entity đang được quản lý, Hibernate ghi UPDATE theo batch khi flush
+            booking.setStatus(Booking.BookingStatus.approved);
+            bookingAvailabilityIndex.track(booking);
+            approvedIds.add(booking.getId());
+        }
 
-        try {
-            bookingEmailEventProducer.publishBookingApproved(saved.getId());
-        } catch (Exception ex) {
-            log.warn("Failed to publish booking-approved event for booking {}", saved.getId(), ex);
+        if (!approvedIds.isEmpty()) {
+            bookingEmailEventProducer.publishBookingsApproved(approvedIds);
         }
 
-        return toResponse(saved);
+        List<BookingApprovalResult> results = requestedIds.stream()
+                .map(id -> {
+                    Long vehicleId = approvedVehicleIds.get(id);
+                    if (vehicleId != null) {
+                        return BookingApprovalResult.builder()
+                                .bookingId(id)
+                                .approved(true)
+                                .vehicleId(vehicleId)
+                                .build();
+                    }
+                    ErrorCode errorCode = failures.getOrDefault(id, ErrorCode.BOOKING_NOT_FOUND);
+                    return BookingApprovalResult.builder()
+                            .bookingId(id)
+                            .approved(false)
+                            .errorCode(errorCode.getCode())
+                            .message(errorCode.getMessage())
+                            .build();
+                })
+                .toList();
+
+        log.info("Bulk approval approved {}/{} bookings", approvedIds.size(), requestedIds.size());
+        return BulkApproveBookingsResponse.builder()
+                .requested(requestedIds.size())
+                .approved(approvedIds.size())
+                .results(results)
+                .build();
     }
 
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
     public BookingResponse cancelBooking(Long bookingId) {
+        // Tránh hủy và duyệt cùng lúc ghi đè trạng thái của nhau
+        bookingRepository.lockById(bookingId)
+                .orElseThrow(() -> new AppException(ErrorCode.BOOKING_NOT_FOUND));
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_NOT_FOUND));
 
@@ -186,7 +349,9 @@ public class BookingService {
         }
 
         booking.setStatus(Booking.BookingStatus.canceled);
-        return toResponse(bookingRepository.save(booking));
+        Booking saved = bookingRepository.save(booking);
+        bookingAvailabilityIndex.track(saved);
+        return toResponse(saved);
     }
 
     @Transactional(readOnly = true)
@@ -226,7 +391,7 @@ public class BookingService {
 
         Pageable pageable = PageRequest.of(page - 1, size);
 
-        Page<Booking> pageData = bookingRepository.filterUserBookings(
+        Page<BookingListView> pageData = bookingRepository.filterUserBookings(
                 userId,
                 bookingStatus,
                 fromDate,
@@ -270,7 +435,7 @@ public class BookingService {
                     .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
         }
 
-        Page<Booking> pageData = bookingRepository.filterBookings(
+        Page<BookingListView> pageData = bookingRepository.filterBookings(
                 bookingStatus,
                 fromDate,
                 toDate,
@@ -291,6 +456,86 @@ public class BookingService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
+    public CursorPageResponse<BookingResponse> getMyBookingsByCursor(
+            String status,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String cursor,
+            int size,
+            boolean includeTotal
+    ) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        userRepository.findById(userId)
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+
+        return findBookingsByCursor(status, fromDate, toDate, userId, cursor, size, includeTotal);
+    }
+
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CursorPageResponse<BookingResponse> getAllBookingsByCursor(
+            String status,
+            LocalDate fromDate,
+            LocalDate toDate,
+            Long userId,
+            String cursor,
+            int size,
+            boolean includeTotal
+    ) {
+        if (userId != null) {
+            userRepository.findById(userId)
+                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        }
+
+        return findBookingsByCursor(status, fromDate, toDate, userId, cursor, size, includeTotal);
+    }
+
+    private CursorPageResponse<BookingResponse> findBookingsByCursor(
+            String status,
+            LocalDate fromDate,
+            LocalDate toDate,
+            Long userId,
+            String cursor,
+            int size,
+            boolean includeTotal
+    ) {
+        if (size < 1) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        Booking.BookingStatus bookingStatus = parseBookingStatus(status);
+
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
+        }
+
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        // Lấy dư một dòng để biết còn trang sau
+        List<BookingListView> rows = bookingRepository.filterBookingsAfter(
+                bookingStatus,
+                fromDate,
+                toDate,
+                userId,
+                pageCursor.createdAt(),
+                pageCursor.id(),
+                PageRequest.of(0, size + 1)
+        );
+
+        Long total = includeTotal
+                ? bookingRepository.countFilteredBookings(bookingStatus, fromDate, toDate, userId)
+                : null;
+
+        return CursorPageResponse.of(
+                rows,
+                size,
+                row -> new PageCursor(row.getCreatedAt(), row.getId()),
+                this::toResponse,
+                total
+        );
+    }
+
     private Booking.BookingStatus parseBookingStatus(String status) {
         if (status == null || status.isBlank() || status.equalsIgnoreCase("all")) {
             return null;
@@ -302,6 +547,56 @@ public class BookingService {
                 .orElseThrow(() -> new AppException(ErrorCode.INVALID_BOOKING_STATUS));
     }
 
+    private void validateBookingRequest(CreateBookingRequest request) {
+        if (request.getVehicleModelId() == null || request.getVehicleId() == null
+                || request.getStartDate() == null || request.getEndDate() == null) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
+        }
+
+        if (request.getStartDate().isBefore(LocalDate.now())) {
+            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
+        }
+    }
+
+    /**
+     * Xe trong request: tồn tại, thuộc đúng mẫu xe, đang available và đã có vị trí
+     */
+    private Vehicle loadBookableVehicle(CreateBookingRequest request) {
+        VehicleModel vehicleModel = vehicleModelRepository.findById(request.getVehicleModelId())
+                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
+
+        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
+                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
+
+        if (!vehicle.getVehicleModel().getId().equals(vehicleModel.getId())) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        if (!vehicle.getStatus().equals(Vehicle.VehicleStatus.available)) {
+            throw new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE);
+        }
+
+        if (vehicle.getLocationRef() == null) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        return vehicle;
+    }
+
+    private BookingHoldStore.BookingHold findOwnHold(String holdId) {
+        BookingHoldStore.BookingHold hold = bookingHoldStore.find(holdId)
+                .orElseThrow(() -> new AppException(ErrorCode.BOOKING_HOLD_NOT_FOUND));
+
+        if (!hold.userId().equals(SecurityUtils.getCurrentUserId())) {
+            throw new AppException(ErrorCode.BOOKING_NOT_AUTHORIZED);
+        }
+        return hold;
+    }
+
     private Booking.PaymentMethod parsePaymentMethod(String paymentMethod) {
         if (paymentMethod == null || paymentMethod.isBlank()) {
             return Booking.PaymentMethod.bank;
@@ -340,28 +635,263 @@ public class BookingService {
                 .build();
     }
 
-    private Vehicle findAvailableVehicleForBooking(Booking booking) {
-        List<Vehicle> candidates = vehicleRepository.findAvailableByModelId(
-                booking.getVehicleModel().getId(),
-                Vehicle.VehicleStatus.available
+    private BookingResponse toResponse(BookingListView row) {
+        return BookingResponse.builder()
+                .id(row.getId())
+                .userId(row.getUserId())
+                .userEmail(row.getUserEmail())
+                .vehicleModelId(row.getVehicleModelId())
+                .vehicleModelName(row.getVehicleModelName())
+                .vehicleId(row.getVehicleId())
+                .vehicleLicensePlate(row.getVehicleLicensePlate())
+                .vehicleLocation(row.getVehicleLocation())
+                .paymentMethod((row.getPaymentMethod() != null
+                        ? row.getPaymentMethod()
+                        : Booking.PaymentMethod.bank).name())
+                .startDate(row.getStartDate())
+                .endDate(row.getEndDate())
+                .totalPrice(row.getTotalPrice())
+                .status(row.getStatus().name())
+                .createdAt(row.getCreatedAt())
+                .build();
+    }
+
+    private boolean hasDuplicateBooking(Long userId, Long vehicleId, LocalDate startDate, LocalDate endDate) {
+        if (bookingAvailabilityIndex.isReady()) {
+            return bookingAvailabilityIndex.hasDuplicate(userId, vehicleId, startDate, endDate);
+        }
+
+        return countDuplicateBookings(userId, vehicleId, startDate, endDate) > 0;
+    }
+
+    private long countDuplicateBookings(Long userId, Long vehicleId, LocalDate startDate, LocalDate endDate) {
+        return bookingRepository.countByUserIdAndVehicleIdAndStartDateAndEndDateAndStatusIn(
+                userId,
+                vehicleId,
+                startDate,
+                endDate,
+                List.of(Booking.BookingStatus.pending, Booking.BookingStatus.approved)
         );
+    }
 
-        return candidates.stream()
-                .filter(vehicle -> bookingRepository.findConflictingBookingsByVehicleId(
-                        vehicle.getId(),
+    private boolean hasApprovedConflict(Long vehicleId, LocalDate startDate, LocalDate endDate) {
+        if (bookingAvailabilityIndex.isReady()) {
+            return bookingAvailabilityIndex.hasApprovedConflict(vehicleId, startDate, endDate);
+        }
+
+        return !bookingRepository.findConflictingBookingsByVehicleId(vehicleId, startDate, endDate).isEmpty();
+    }
+
+    /**
+     * Chọn xe cho booking chưa gán xe. Một query lấy mọi xe còn trống của mẫu xe cùng khoảng trống
+     * trước/sau khoảng ngày, rồi ưu tiên xe mà booking lấp vừa khít nhất để lịch ít bị chia nhỏ.
+     *
+     * Các xe ứng viên được thử khóa lần lượt theo thứ tự ưu tiên bằng SKIP LOCKED: xe đang bị lượt
+     * duyệt khác giữ được bỏ qua thay vì chờ, nên không khóa cả mẫu xe và không deadlock. Chỉ khi mọi
+     * xe còn lại đều đang bị giữ mới chờ khóa từng xe trong số đó.
+     */
+    private Vehicle findAvailableVehicleForBooking(Booking booking) {
+        List<Long> rankedVehicleIds = vehicleRepository.findFreeSlots(
+                        booking.getVehicleModel().getId(),
                         booking.getStartDate(),
                         booking.getEndDate()
-                ).isEmpty())
-                .findFirst()
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE));
+                ).stream()
+                .sorted(Comparator.comparingLong((VehicleFreeSlotView slot) -> leftoverDays(slot, booking))
+                        .thenComparing(VehicleFreeSlotView::getVehicleId))
+                .map(VehicleFreeSlotView::getVehicleId)
+                .toList();
+
+        if (rankedVehicleIds.isEmpty()) {
+            throw new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE);
+        }
+
+        // Kết quả query có trước khi khóa nên phải kiểm tra lại; thường xe đầu tiên là đủ
+        List<Long> busyVehicleIds = new ArrayList<>();
+        for (Long vehicleId : rankedVehicleIds) {
+            if (vehicleRepository.tryLockById(vehicleId).isEmpty()) {
+                busyVehicleIds.add(vehicleId);
+            } else if (isFreeForBooking(vehicleId, booking)) {
+                return vehicleRepository.findById(vehicleId)
+                        .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
+            }
+        }
+
+        // Lượt duyệt đang giữ xe có thể không trùng ngày, chờ từng xe rồi kiểm tra lại
+        for (Long vehicleId : busyVehicleIds) {
+            if (vehicleRepository.lockById(vehicleId).isPresent() && isFreeForBooking(vehicleId, booking)) {
+                return vehicleRepository.findById(vehicleId)
+                        .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
+            }
+        }
+
+        throw new AppException(ErrorCode.VEHICLE_NOT_AVAILABLE);
     }
 
-    private String normalizeLocation(String location) {
-        if (location == null) {
-            return null;
+    private boolean isFreeForBooking(Long vehicleId, Booking booking) {
+        return bookingRepository.findConflictingBookingsByVehicleId(
+                vehicleId,
+                booking.getStartDate(),
+                booking.getEndDate()
+        ).isEmpty();
+    }
+
+    /**
+     * Khóa các xe liên quan tới lô booking (xe đã gán và mọi xe available của các mẫu xe cần chọn xe)
+     * bằng một query, nạp các booking approved giao khoảng ngày của lô cùng booking gần nhất trước/sau
+     * lô (giống findFreeSlots) bằng hai query rồi xét từng booking theo thứ tự.
+     * Booking đã gán xe chỉ kiểm tra trùng lịch; booking chưa gán xe được xếp vào xe còn trống vừa
+     * khít nhất, cùng cách chọn với findAvailableVehicleForBooking.
+     * @return bookingId -> vehicleId của các booking được duyệt; booking lỗi được ghi vào failures
+     */
+    private Map<Long, Long> assignVehicles(List<Booking> pending, Map<Long, ErrorCode> failures) {
+        Map<Long, Long> assigned = new HashMap<>();
+        if (pending.isEmpty()) {
+            return assigned;
+        }
+
+        Set<Long> vehicleIds = new HashSet<>();
+        Set<Long> vehicleModelIds = new HashSet<>();
+        LocalDate fromDate = null;
+        LocalDate toDate = null;
+        for (Booking booking : pending) {
+            if (booking.getVehicle() != null) {
+                vehicleIds.add(booking.getVehicle().getId());
+            } else {
+                vehicleModelIds.add(booking.getVehicleModel().getId());
+            }
+            fromDate = fromDate == null || booking.getStartDate().isBefore(fromDate) ? booking.getStartDate() : fromDate;
+            toDate = toDate == null || booking.getEndDate().isAfter(toDate) ? booking.getEndDate() : toDate;
         }
 
-        String trimmed = location.trim();
-        return trimmed.isEmpty() ? null : trimmed;
+        // MySQL không nhận IN (), id -1 không khớp dòng nào
+        List<VehicleLockView> lockedVehicles = vehicleRepository.lockForBulkApproval(
+                vehicleIds.isEmpty() ? List.of(-1L) : vehicleIds,
+                vehicleModelIds.isEmpty() ? List.of(-1L) : vehicleModelIds
+        );
+
+        Map<Long, List<Long>> candidatesByModel = new HashMap<>();
+        Map<Long, List<DateRange>> calendars = new HashMap<>();
+        for (VehicleLockView vehicle : lockedVehicles) {
+            calendars.put(vehicle.getVehicleId(), new ArrayList<>());
+            if (Vehicle.VehicleStatus.available.name().equals(vehicle.getStatus())) {
+                candidatesByModel.computeIfAbsent(vehicle.getVehicleModelId(), key -> new ArrayList<>())
+                        .add(vehicle.getVehicleId());
+            }
+        }
+
+        if (!calendars.isEmpty()) {
+            bookingRepository.findApprovedIntervals(calendars.keySet(), fromDate, toDate)
+                    .forEach(row -> calendars.get(row.getVehicleId())
+                            .add(new DateRange(row.getStartDate(), row.getEndDate())));
+
+            // Booking approved gần nhất trước/sau cả lô chỉ dùng để tính khoảng trống khi chọn xe,
+            // lưu như khoảng một ngày nằm ngoài lô nên không bao giờ bị tính là trùng
+            for (VehicleFreeSlotView row : vehicleRepository.findApprovedNeighbours(calendars.keySet(), fromDate, toDate)) {
+                List<DateRange> calendar = calendars.get(row.getVehicleId());
+                if (row.getPreviousEndDate() != null) {
+                    calendar.add(new DateRange(row.getPreviousEndDate(), row.getPreviousEndDate()));
+                }
+                if (row.getNextStartDate() != null) {
+                    calendar.add(new DateRange(row.getNextStartDate(), row.getNextStartDate()));
+                }
+            }
+        }
+
+        for (Booking booking : pending) {
+            DateRange range = new DateRange(booking.getStartDate(), booking.getEndDate());
+            Long vehicleId;
+            if (booking.getVehicle() != null) {
+                vehicleId = booking.getVehicle().getId();
+                List<DateRange> calendar = calendars.get(vehicleId);
+                if (calendar == null) {
+                    failures.put(booking.getId(), ErrorCode.VEHICLE_NOT_FOUND);
+                    continue;
+                }
+                if (calendar.stream().anyMatch(range::overlaps)) {
+                    failures.put(booking.getId(), ErrorCode.BOOKING_CONFLICT);
+                    continue;
+                }
+            } else {
+                vehicleId = pickBestFitVehicle(
+                        candidatesByModel.getOrDefault(booking.getVehicleModel().getId(), List.of()),
+                        calendars,
+                        range
+                );
+                if (vehicleId == null) {
+                    failures.put(booking.getId(), ErrorCode.VEHICLE_NOT_AVAILABLE);
+                    continue;
+                }
+            }
+
+            calendars.get(vehicleId).add(range);
+            assigned.put(booking.getId(), vehicleId);
+        }
+        return assigned;
+    }
+
+    /**
+     * @param candidates Id xe available của mẫu xe, tăng dần
+     * @return Xe không trùng lịch có ít ngày trống thừa nhất (bằng nhau thì lấy id nhỏ), null nếu không còn xe
+     */
+    private static Long pickBestFitVehicle(List<Long> candidates, Map<Long, List<DateRange>> calendars, DateRange range) {
+        Long best = null;
+        long bestLeftover = Long.MAX_VALUE;
+        for (Long vehicleId : candidates) {
+            LocalDate previousEndDate = null;
+            LocalDate nextStartDate = null;
+            boolean free = true;
+            for (DateRange taken : calendars.get(vehicleId)) {
+                if (range.overlaps(taken)) {
+                    free = false;
+                    break;
+                }
+                if (taken.endDate().isBefore(range.startDate())
+                        && (previousEndDate == null || taken.endDate().isAfter(previousEndDate))) {
+                    previousEndDate = taken.endDate();
+                } else if (taken.startDate().isAfter(range.endDate())
+                        && (nextStartDate == null || taken.startDate().isBefore(nextStartDate))) {
+                    nextStartDate = taken.startDate();
+                }
+            }
+            if (!free) {
+                continue;
+            }
+
+            long leftover = leftoverDays(previousEndDate, nextStartDate, range.startDate(), range.endDate());
+            if (leftover < bestLeftover) {
+                best = vehicleId;
+                bestLeftover = leftover;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Số ngày trống còn lại trước và sau booking trên lịch của xe; phía chưa có booking nào được
+     * tính là OPEN_CALENDAR_DAYS để xe đã có lịch gần đó được ưu tiên
+     */
+    private static long leftoverDays(VehicleFreeSlotView slot, Booking booking) {
+        return leftoverDays(slot.getPreviousEndDate(), slot.getNextStartDate(), booking.getStartDate(), booking.getEndDate());
+    }
+
+    private static long leftoverDays(LocalDate previousEndDate, LocalDate nextStartDate, LocalDate startDate, LocalDate endDate) {
+        long before = previousEndDate != null
+                ? ChronoUnit.DAYS.between(previousEndDate, startDate)
+                : OPEN_CALENDAR_DAYS;
+        long after = nextStartDate != null
+                ? ChronoUnit.DAYS.between(endDate, nextStartDate)
+                : OPEN_CALENDAR_DAYS;
+        return before + after;
+    }
+
+    private void lockVehicle(Long vehicleId) {
+        vehicleRepository.lockById(vehicleId)
+                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
+    }
+
+    private record DateRange(LocalDate startDate, LocalDate endDate) {
+        boolean overlaps(DateRange other) {
+            return !startDate.isAfter(other.endDate) && !endDate.isBefore(other.startDate);
+        }
     }
 }
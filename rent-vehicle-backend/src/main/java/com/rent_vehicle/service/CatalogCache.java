@@ -0,0 +1,279 @@
+package com.rent_vehicle.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache 2 tầng cho response của catalog (vehicle types / vehicle models):
+ * tầng local trong JVM với TTL ngắn và tầng Redis dùng chung giữa các instance.
+ *
+ * Mỗi region được lưu trong Redis dưới dạng một hash, nên có thể xóa một entry hoặc cả region.
+ * Việc xóa chỉ thực hiện sau khi transaction commit và được broadcast qua Redis pub/sub để các
+ * node khác bỏ bản local; nếu mất message thì TTL local giới hạn thời gian dữ liệu cũ tồn tại.
+ * Mỗi lần xóa tăng version của region trên Redis, giá trị vừa load chỉ được ghi vào Redis khi
+ * version chưa đổi nên request đọc trước commit không ghi đè lại dữ liệu cũ sau khi đã xóa.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCache implements MessageListener {
+
+    public static final String VEHICLE_TYPES = "vehicle-types";
+    public static final String VEHICLE_MODELS = "vehicle-models";
+    public static final String VEHICLE_MODEL_LISTS = "vehicle-model-lists";
+
+    private static final String KEY_PREFIX = "catalog-cache:";
+    private static final String VERSION_KEY_PREFIX = "catalog-cache-version:";
+    private static final String REGION_WILDCARD = "*";
+
+    // Chỉ ghi khi version của region vẫn là version đọc được trước khi load
+    // KEYS: regionKey, versionKey | ARGV: field, json, observedVersion, ttlSeconds
+    private static final RedisScript<Long> WRITE_IF_UNCHANGED_SCRIPT = RedisScript.of("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[3] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            -- TTL tính từ lần ghi đầu tiên của region, không gia hạn mỗi lần ghi thêm entry
+            if redis.call('TTL', KEYS[1]) < 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[4])
+            end
+            return 1
+            """, Long.class);
+
+    // Tăng version trước khi xóa để lượt ghi của request đọc dữ liệu cũ bị từ chối
+    // KEYS: regionKey, versionKey | ARGV: field (* = cả region)
+    private static final RedisScript<Long> EVICT_SCRIPT = RedisScript.of("""
+            redis.call('INCR', KEYS[2])
+            if ARGV[1] == '*' then
+                return redis.call('DEL', KEYS[1])
+            end
+            return redis.call('HDEL', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Map<String, Map<String, LocalEntry>> localRegions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Value("${app.catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.catalog.cache.local-ttl-seconds:30}")
+    private long localTtlSeconds;
+
+    @Value("${app.catalog.cache.redis-ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    @Value("${app.catalog.cache.local-max-entries:500}")
+    private int localMaxEntries;
+
+    @Value("${app.catalog.cache.channel:catalog-cache:invalidate}")
+    private String channel;
+
+    @Value("${app.catalog.cache.max-cached-page:5}")
+    private int maxCachedPage;
+
+    @Value("${app.catalog.cache.max-cached-page-size:50}")
+    private int maxCachedPageSize;
+
+    /**
+     * Key cho một trang danh sách, null nếu trang nằm ngoài giới hạn cache. page/size do client gửi lên
+     * nên chỉ cache vài trang đầu với size nhỏ để số field trong hash của region có giới hạn.
+     */
+    public String pageKey(int page, int size) {
+        if (page < 1 || page > maxCachedPage || size < 1 || size > maxCachedPageSize) {
+            return null;
+        }
+        return "page:" + page + ":" + size;
+    }
+
+    /**
+     * Đọc từ local, rồi Redis, cuối cùng gọi loader và ghi ngược lại cả 2 tầng
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String region, String key, TypeReference<T> type, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Map<String, LocalEntry> local = localRegion(region);
+        LocalEntry entry = local.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return (T) entry.value();
+        }
+
+        // Ghi nhận generation trước khi đọc để không đưa giá trị cũ vào local nếu có evict xảy ra giữa chừng
+        long generation = generation(region).get();
+
+        T value = readRedis(region, key, type);
+        if (value == null) {
+            // Version phải được đọc trước khi loader đọc database
+            String version = readVersion(region);
+            value = loader.get();
+            if (version != null && generation(region).get() == generation) {
+                writeRedis(region, key, value, version);
+            }
+        }
+
+        if (generation(region).get() == generation) {
+            if (local.size() >= localMaxEntries) {
+                local.clear();
+            }
+            local.put(key, new LocalEntry(value, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(localTtlSeconds)));
+        }
+        return value;
+    }
+
+    public void evict(String region, String key) {
+        afterCommit(() -> {
+            dropLocal(region, key);
+            deleteRedis(region, key);
+            publish(region, key);
+        });
+    }
+
+    public void evictRegion(String region) {
+        evict(region, REGION_WILDCARD);
+    }
+
+    /**
+     * Xóa response của một vehicle model cùng toàn bộ danh sách có thể chứa model đó
+     */
+    public void evictVehicleModel(Long vehicleModelId) {
+        evict(VEHICLE_MODELS, String.valueOf(vehicleModelId));
+        evictRegion(VEHICLE_MODEL_LISTS);
+    }
+
+    /**
+     * Nhận message invalidation từ các node (kể cả chính node này) và bỏ bản local tương ứng
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator <= 0) {
+            log.warn("Ignoring malformed catalog cache invalidation: {}", body);
+            return;
+        }
+        dropLocal(body.substring(0, separator), body.substring(separator + 1));
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    private void dropLocal(String region, String key) {
+        generation(region).incrementAndGet();
+        if (REGION_WILDCARD.equals(key)) {
+            localRegion(region).clear();
+        } else {
+            localRegion(region).remove(key);
+        }
+    }
+
+    private <T> T readRedis(String region, String key, TypeReference<T> type) {
+        try {
+            Object json = redisTemplate.opsForHash().get(KEY_PREFIX + region, key);
+            return json != null ? objectMapper.readValue(json.toString(), type) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read catalog cache entry {}/{} from Redis", region, key, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Version hiện tại của region ("0" nếu chưa có lần xóa nào), null nếu Redis lỗi (bỏ qua ghi)
+     */
+    private String readVersion(String region) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + region);
+            return version != null ? version : "0";
+        } catch (Exception e) {
+            log.warn("Failed to read catalog cache version of {} from Redis", region, e);
+            return null;
+        }
+    }
+
+    private void writeRedis(String region, String key, Object value, String version) {
+        try {
+            redisTemplate.execute(
+                    WRITE_IF_UNCHANGED_SCRIPT,
+                    List.of(KEY_PREFIX + region, VERSION_KEY_PREFIX + region),
+                    key,
+                    objectMapper.writeValueAsString(value),
+                    version,
+                    String.valueOf(redisTtlSeconds)
+            );
+        } catch (Exception e) {
+            log.warn("Failed to write catalog cache entry {}/{} to Redis", region, key, e);
+        }
+    }
+
+    private void deleteRedis(String region, String key) {
+        try {
+            redisTemplate.execute(EVICT_SCRIPT, List.of(KEY_PREFIX + region, VERSION_KEY_PREFIX + region), key);
+        } catch (Exception e) {
+            log.warn("Failed to evict catalog cache entry {}/{} from Redis", region, key, e);
+        }
+    }
+
+    private void publish(String region, String key) {
+        try {
+            redisTemplate.convertAndSend(channel, region + "|" + key);
+        } catch (Exception e) {
+            log.warn("Failed to broadcast catalog cache invalidation {}/{}", region, key, e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+
+        action.run();
+    }
+
+    private Map<String, LocalEntry> localRegion(String region) {
+        return localRegions.computeIfAbsent(region, name -> new ConcurrentHashMap<>());
+    }
+
+    private AtomicLong generation(String region) {
+        return generations.computeIfAbsent(region, name -> new AtomicLong());
+    }
+
+    private record LocalEntry(Object value, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
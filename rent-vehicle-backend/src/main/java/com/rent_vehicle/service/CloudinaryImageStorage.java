@@ -0,0 +1,69 @@
+package com.rent_vehicle.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "cloudinary", matchIfMissing = true)
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class CloudinaryImageStorage implements ImageStorage {
+
+    Cloudinary cloudinary;
+
+    @Override
+    public String store(Path file, String folder, String originalFilename) throws IOException {
+        // Truyền File để SDK gửi multipart trực tiếp từ đĩa, không cần mảng byte của cả file
+        Map<String, Object> uploadResult = cloudinary.uploader().upload(file.toFile(),
+                ObjectUtils.asMap(
+                        "folder", "rent-vehicle/" + folder,
+                        "resource_type", "image"
+                ));
+        return (String) uploadResult.get("secure_url");
+    }
+
+    @Override
+    public void delete(String imageUrl) throws IOException {
+        // URL format: https://res.cloudinary.com/{cloud_name}/image/upload/v{version}/{folder}/{public_id}.{format}
+        String publicId = extractPublicId(imageUrl);
+        if (publicId != null) {
+            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+            log.info("Image deleted successfully: {}", publicId);
+        }
+    }
+
+    /**
+     * Extract public_id from Cloudinary URL
+     */
+    private String extractPublicId(String url) {
+        try {
+            // Example URL: https://res.cloudinary.com/xxx/image/upload/v123456/rent-vehicle/vehicles/abc123.jpg
+            String[] parts = url.split("/upload/");
+            if (parts.length < 2) return null;
+
+            String pathWithVersion = parts[1];
+            // Remove version (v123456/)
+            String path = pathWithVersion.replaceFirst("v\\d+/", "");
+            // Remove file extension
+            int lastDot = path.lastIndexOf('.');
+            if (lastDot > 0) {
+                path = path.substring(0, lastDot);
+            }
+            return path;
+        } catch (Exception e) {
+            log.error("Failed to extract public_id from URL: {}", url, e);
+            return null;
+        }
+    }
+}
@@ -1,88 +1,120 @@
 package com.rent_vehicle.service;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import com.rent_vehicle.dto.response.ImageUploadResponse;
 import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
-import lombok.experimental.FieldDefaults;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Upload/xóa ảnh qua ImageStorage (mặc định là Cloudinary).
+ *
+ * Nhiều file được upload song song trên một executor giới hạn dùng chung cho toàn instance.
+ * Mỗi file được chuyển sang file tạm (multipart của Tomcat đã nằm trên đĩa nên thường chỉ là move)
+ * rồi gửi dạng stream, thay vì đọc cả file vào heap bằng getBytes().
+ */
 @Service
-@RequiredArgsConstructor
-@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
 public class CloudinaryService {
 
-    Cloudinary cloudinary;
+    private final ImageStorage imageStorage;
+    private final ExecutorService uploadExecutor;
+
+    @Value("${app.storage.upload.timeout-seconds:60}")
+    private long uploadTimeoutSeconds;
+
+    public CloudinaryService(
+            ImageStorage imageStorage,
+            @Value("${app.storage.upload.parallelism:4}") int parallelism
+    ) {
+        this.imageStorage = imageStorage;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        // Hàng đợi đầy thì request thread tự upload (CallerRuns) thay vì nhận thêm việc
+        this.uploadExecutor = new ThreadPoolExecutor(
+                parallelism,
+                parallelism,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(parallelism * 25),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
 
     /**
-     * Upload a single image to Cloudinary
+     * Upload a single image
      * @param file MultipartFile to upload
-     * @param folder Folder name in Cloudinary (e.g., "vehicles", "avatars")
+     * @param folder Folder name in storage (e.g., "vehicles", "avatars")
      * @return URL of the uploaded image
      */
     @PreAuthorize("(#folder != null && #folder.equalsIgnoreCase('avatars') && hasAnyAuthority('USER','ADMIN')) || hasAuthority('ADMIN')")
     public String uploadImage(MultipartFile file, String folder) {
-        if (file == null || file.isEmpty()) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
-
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
-
-        try {
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(file.getBytes(),
-                    ObjectUtils.asMap(
-                            "folder", "rent-vehicle/" + folder,
-                            "resource_type", "image"
-                    ));
-
-            String url = (String) uploadResult.get("secure_url");
-            log.info("Image uploaded successfully: {}", url);
-            return url;
-
-        } catch (IOException e) {
-            log.error("Failed to upload image to Cloudinary", e);
-            throw new AppException(ErrorCode.FILE_UPLOAD_FAILED);
-        }
+        validateImage(file);
+        return store(file, folder);
     }
 
     /**
-     * Upload multiple images to Cloudinary
+     * Upload multiple images concurrently, all or nothing: if any file fails, the images that
+     * were already uploaded are deleted and the error is thrown
      * @param files List of MultipartFile to upload
-     * @param folder Folder name in Cloudinary
-     * @return List of URLs of uploaded images
+     * @param folder Folder name in storage
+     * @return List of URLs in the same order as the files
      */
     @PreAuthorize("(#folder != null && #folder.equalsIgnoreCase('avatars') && hasAnyAuthority('USER','ADMIN')) || hasAuthority('ADMIN')")
     public List<String> uploadImages(List<MultipartFile> files, String folder) {
-        if (files == null || files.isEmpty()) {
-            return new ArrayList<>();
-        }
+        List<ImageUploadResponse> results = uploadConcurrently(files, folder);
 
-        List<String> urls = new ArrayList<>();
-        for (MultipartFile file : files) {
-            if (!file.isEmpty()) {
-                urls.add(uploadImage(file, folder));
-            }
+        ImageUploadResponse failed = results.stream()
+                .filter(result -> !result.isSuccess())
+                .findFirst()
+                .orElse(null);
+        if (failed != null) {
+            List<String> uploadedUrls = results.stream()
+                    .filter(ImageUploadResponse::isSuccess)
+                    .map(ImageUploadResponse::getUrl)
+                    .toList();
+            uploadedUrls.forEach(this::deleteQuietly);
+            throw new AppException(ErrorCode.FILE_UPLOAD_FAILED, "Failed to upload " + failed.getFileName() + ": " + failed.getError());
         }
-        return urls;
+
+        return results.stream().map(ImageUploadResponse::getUrl).toList();
     }
 
     /**
-     * Delete an image from Cloudinary by URL
+     * Upload multiple images concurrently and report the outcome of each file separately
+     * @param files List of MultipartFile to upload
+     * @param folder Folder name in storage
+     * @return One result per non-empty file, in the same order
+     */
+    @PreAuthorize("(#folder != null && #folder.equalsIgnoreCase('avatars') && hasAnyAuthority('USER','ADMIN')) || hasAuthority('ADMIN')")
+    public List<ImageUploadResponse> uploadImagesWithResults(List<MultipartFile> files, String folder) {
+        return uploadConcurrently(files, folder);
+    }
+
+    /**
+     * Delete an image by URL
      * @param imageUrl The URL of the image to delete
      */
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -90,22 +122,11 @@ public class CloudinaryService {
         if (imageUrl == null || imageUrl.isEmpty()) {
             return;
         }
-
-        try {
-            // Extract public_id from URL
-            // URL format: https://res.cloudinary.com/{cloud_name}/image/upload/v{version}/{folder}/{public_id}.{format}
-            String publicId = extractPublicId(imageUrl);
-            if (publicId != null) {
-                cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-                log.info("Image deleted successfully: {}", publicId);
-            }
-        } catch (IOException e) {
-            log.error("Failed to delete image from Cloudinary: {}", imageUrl, e);
-        }
+        deleteQuietly(imageUrl);
     }
 
     /**
-     * Delete multiple images from Cloudinary
+     * Delete multiple images
      * @param imageUrls List of URLs to delete
      */
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -116,27 +137,106 @@ public class CloudinaryService {
         imageUrls.forEach(this::deleteImage);
     }
 
-    /**
-     * Extract public_id from Cloudinary URL
-     */
-    private String extractPublicId(String url) {
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    private List<ImageUploadResponse> uploadConcurrently(List<MultipartFile> files, String folder) {
+        if (files == null || files.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<MultipartFile> nonEmptyFiles = files.stream()
+                .filter(file -> file != null && !file.isEmpty())
+                .toList();
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>();
+        for (MultipartFile file : nonEmptyFiles) {
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                validateImage(file);
+                return store(file, folder);
+            }, uploadExecutor));
+        }
+
+        List<ImageUploadResponse> results = new ArrayList<>();
+        for (int i = 0; i < nonEmptyFiles.size(); i++) {
+            results.add(awaitResult(nonEmptyFiles.get(i).getOriginalFilename(), uploads.get(i)));
+        }
+        return results;
+    }
+
+    private ImageUploadResponse awaitResult(String fileName, CompletableFuture<String> upload) {
         try {
-            // Example URL: https://res.cloudinary.com/xxx/image/upload/v123456/rent-vehicle/vehicles/abc123.jpg
-            String[] parts = url.split("/upload/");
-            if (parts.length < 2) return null;
-            
-            String pathWithVersion = parts[1];
-            // Remove version (v123456/)
-            String path = pathWithVersion.replaceFirst("v\\d+/", "");
-            // Remove file extension
-            int lastDot = path.lastIndexOf('.');
-            if (lastDot > 0) {
-                path = path.substring(0, lastDot);
+            return ImageUploadResponse.builder()
+                    .fileName(fileName)
+                    .url(upload.get(uploadTimeoutSeconds, TimeUnit.SECONDS))
+                    .build();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return failure(fileName, new AppException(ErrorCode.FILE_UPLOAD_FAILED));
+        } catch (TimeoutException ex) {
+            // Upload vẫn có thể hoàn tất sau đó; xóa ảnh để không để lại file mồ côi
+            upload.thenAccept(this::deleteQuietly);
+            log.error("Timed out uploading image {}", fileName);
+            return failure(fileName, new AppException(ErrorCode.FILE_UPLOAD_FAILED));
+        } catch (Exception ex) {
+            AppException appException = ex.getCause() instanceof AppException app
+                    ? app
+                    : new AppException(ErrorCode.FILE_UPLOAD_FAILED);
+            return failure(fileName, appException);
+        }
+    }
+
+    private ImageUploadResponse failure(String fileName, AppException exception) {
+        return ImageUploadResponse.builder()
+                .fileName(fileName)
+                .code(exception.getErrorCode().getCode())
+                .error(exception.getMessage())
+                .build();
+    }
+
+    private void validateImage(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        // Validate file type
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new AppException(ErrorCode.INVALID_FILE_TYPE);
+        }
+    }
+
+    private String store(MultipartFile file, String folder) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("image-upload-", null);
+            // Với File, Tomcat move file tạm của part thay vì copy
+            file.transferTo(tempFile.toFile());
+
+            String url = imageStorage.store(tempFile, folder, file.getOriginalFilename());
+            log.info("Image uploaded successfully: {}", url);
+            return url;
+        } catch (IOException e) {
+            log.error("Failed to upload image {}", file.getOriginalFilename(), e);
+            throw new AppException(ErrorCode.FILE_UPLOAD_FAILED);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Failed to delete temporary upload file {}", tempFile, e);
+                }
             }
-            return path;
-        } catch (Exception e) {
-            log.error("Failed to extract public_id from URL: {}", url, e);
-            return null;
+        }
+    }
+
+    private void deleteQuietly(String imageUrl) {
+        try {
+            imageStorage.delete(imageUrl);
+        } catch (IOException e) {
+            log.error("Failed to delete image: {}", imageUrl, e);
         }
     }
 }
@@ -1,23 +1,23 @@
 package com.rent_vehicle.service;
 
-import com.rent_vehicle.exception.AppException;
-import com.rent_vehicle.exception.ErrorCode;
 import com.rent_vehicle.model.Booking;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.MailAuthenticationException;
-import org.springframework.mail.MailException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Soạn nội dung email và đưa vào MailDispatcher. Các hàm trả về future hoàn thành khi SMTP server
+ * đã nhận message; nếu hàng đợi gửi đã đầy thì ném AppException(EMAIL_SEND_FAILED) ngay.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
 
     @Value("${app.mail.from:}")
     private String fromEmail;
@@ -25,7 +25,7 @@ public class EmailService {
     @Value("${app.frontend.base-url:http://localhost:5173}")
     private String frontendBaseUrl;
 
-    public void sendBookingApprovedEmail(Booking booking) {
+    public CompletableFuture<Void> sendBookingApprovedEmail(Booking booking) {
         String to = booking.getUser().getEmail();
         String subject = "Booking #" + booking.getId() + " approved";
         String bookingUrl = frontendBaseUrl + "/my-bookings";
@@ -64,10 +64,10 @@ public class EmailService {
                 bookingUrl
         );
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    public void sendAdminLoginOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
+    public CompletableFuture<Void> sendAdminLoginOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
         String subject = "Admin login verification code";
         long minutes = Math.max(1, expiresInSeconds / 60);
 
@@ -80,10 +80,10 @@ public class EmailService {
                 If you did not request this login, please ignore this email.
                 """.formatted(fullName == null ? "Admin" : fullName, otpCode, minutes);
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    public void sendPasswordChangeOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
+    public CompletableFuture<Void> sendPasswordChangeOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
         String subject = "Password change verification code";
         long minutes = Math.max(1, expiresInSeconds / 60);
 
@@ -96,10 +96,10 @@ public class EmailService {
                 If you did not request this action, please secure your account immediately.
                 """.formatted(fullName == null ? "User" : fullName, otpCode, minutes);
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    public void sendPasswordResetOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
+    public CompletableFuture<Void> sendPasswordResetOtpEmail(String to, String fullName, String otpCode, long expiresInSeconds) {
         String subject = "Password reset verification code";
         long minutes = Math.max(1, expiresInSeconds / 60);
 
@@ -112,10 +112,10 @@ public class EmailService {
                 If you did not request a password reset, please ignore this email.
                 """.formatted(fullName == null ? "User" : fullName, otpCode, minutes);
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    public void sendPasswordChangedSuccessEmail(String to, String fullName) {
+    public CompletableFuture<Void> sendPasswordChangedSuccessEmail(String to, String fullName) {
         String subject = "Password changed successfully";
 
         String body = """
@@ -126,10 +126,10 @@ public class EmailService {
                 If you did not perform this action, please contact support immediately.
                 """.formatted(fullName == null ? "User" : fullName);
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    public void sendPasswordResetSuccessEmail(String to, String fullName) {
+    public CompletableFuture<Void> sendPasswordResetSuccessEmail(String to, String fullName) {
         String subject = "Password reset successfully";
 
         String body = """
@@ -140,26 +140,10 @@ public class EmailService {
                 If you did not perform this action, please contact support immediately.
                 """.formatted(fullName == null ? "User" : fullName);
 
-        sendSimpleMessage(to, subject, body);
+        return sendSimpleMessage(to, subject, body);
     }
 
-    private void sendSimpleMessage(String to, String subject, String text) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        if (fromEmail != null && !fromEmail.isBlank()) {
-            message.setFrom(fromEmail);
-        }
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(text);
-
-        try {
-            mailSender.send(message);
-        } catch (MailAuthenticationException exception) {
-            log.error("Mail authentication failed for recipient {}", to);
-            throw new AppException(ErrorCode.EMAIL_SEND_FAILED);
-        } catch (MailException exception) {
-            log.error("Failed to send email to {}: {}", to, exception.getMessage());
-            throw new AppException(ErrorCode.EMAIL_SEND_FAILED);
-        }
+    private CompletableFuture<Void> sendSimpleMessage(String to, String subject, String text) {
+        return mailDispatcher.submit(fromEmail, to, subject, text);
     }
 }
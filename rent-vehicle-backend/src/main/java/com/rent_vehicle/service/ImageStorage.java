@@ -0,0 +1,24 @@
+package com.rent_vehicle.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Nơi lưu ảnh đã upload. Bản mặc định là Cloudinary; bản local (app.storage.type=local)
+ * ghi ra thư mục trên đĩa để chạy thử và kiểm thử mà không cần tài khoản Cloudinary.
+ */
+public interface ImageStorage {
+
+    /**
+     * Lưu file ảnh và trả về URL công khai của ảnh
+     * @param file File tạm trên đĩa, được đọc dạng stream thay vì nạp hết vào bộ nhớ
+     * @param folder Thư mục con (ví dụ "vehicles", "avatars")
+     * @param originalFilename Tên file gốc, dùng để giữ phần mở rộng
+     */
+    String store(Path file, String folder, String originalFilename) throws IOException;
+
+    /**
+     * Xóa ảnh theo URL đã trả về từ store; bỏ qua nếu URL không thuộc storage này
+     */
+    void delete(String imageUrl) throws IOException;
+}
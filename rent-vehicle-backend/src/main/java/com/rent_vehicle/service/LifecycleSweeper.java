@@ -0,0 +1,241 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.model.Payment;
+import com.rent_vehicle.repository.BookingRepository;
+import com.rent_vehicle.repository.PaymentRepository;
+import com.rent_vehicle.repository.projection.ExpiredRowView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Dọn các bản ghi pending bị bỏ dở:
+ * - booking pending quá pending-ttl-hours hoặc đã qua ngày nhận xe mà chưa được duyệt -> canceled
+ * - payment VNPay pending quá txn-timeout-minutes (cộng payment-grace-minutes) -> failed
+ *
+ * Mỗi lượt chỉ chạy trên một instance (khóa Redis có TTL). Dữ liệu được xử lý theo lô: khóa lô
+ * tiếp theo theo keyset (createdAt, id) với SKIP LOCKED rồi cập nhật cả lô bằng một câu UPDATE,
+ * mỗi lô một transaction ngắn; số lô mỗi lượt bị giới hạn để lượt chạy không giữ khóa quá lâu.
+ */
+@Component
+@Slf4j
+public class LifecycleSweeper {
+
+    private static final String LOCK_KEY = "lifecycle-sweeper:lock";
+
+    // Chỉ xóa khóa khi vẫn là của instance này (khóa có thể đã hết hạn và bị instance khác lấy)
+    // KEYS: lockKey | ARGV: token
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    // Mốc nhỏ hơn mọi bản ghi, dùng làm cursor cho lô đầu tiên
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BookingRepository bookingRepository;
+    private final PaymentRepository paymentRepository;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TransactionTemplate chunkTransaction;
+
+    private final Timer sweepTimer;
+    private final Counter expiredBookings;
+    private final Counter expiredPayments;
+    private final AtomicLong bookingBacklog = new AtomicLong();
+    private final AtomicLong paymentBacklog = new AtomicLong();
+
+    @Value("${app.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.sweeper.max-chunks-per-run:20}")
+    private int maxChunksPerRun;
+
+    @Value("${app.sweeper.lock-ttl-seconds:300}")
+    private long lockTtlSeconds;
+
+    @Value("${app.sweeper.booking-pending-ttl-hours:48}")
+    private long bookingPendingTtlHours;
+
+    @Value("${app.sweeper.payment-grace-minutes:5}")
+    private long paymentGraceMinutes;
+
+    @Value("${app.vnpay.txn-timeout-minutes:15}")
+    private int txnTimeoutMinutes;
+
+    public LifecycleSweeper(
+            BookingRepository bookingRepository,
+            PaymentRepository paymentRepository,
+            BookingAvailabilityIndex bookingAvailabilityIndex,
+            RedisTemplate<String, String> redisTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.paymentRepository = paymentRepository;
+        this.bookingAvailabilityIndex = bookingAvailabilityIndex;
+        this.redisTemplate = redisTemplate;
+        // READ_COMMITTED: SELECT ... FOR UPDATE chỉ khóa các dòng trả về, không khóa gap của index
+        // nên không chặn việc tạo booking/payment mới trong lúc dọn
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        this.sweepTimer = Timer.builder("lifecycle.sweeper.duration")
+                .description("Time spent in one sweep over stale bookings and payments")
+                .register(meterRegistry);
+        this.expiredBookings = Counter.builder("lifecycle.sweeper.expired")
+                .tag("type", "booking")
+                .description("Pending bookings canceled by the sweeper")
+                .register(meterRegistry);
+        this.expiredPayments = Counter.builder("lifecycle.sweeper.expired")
+                .tag("type", "payment")
+                .description("Pending VNPay payments marked failed by the sweeper")
+                .register(meterRegistry);
+        Gauge.builder("lifecycle.sweeper.backlog", bookingBacklog, AtomicLong::get)
+                .tag("type", "booking")
+                .description("Expired pending bookings found at the start of the last sweep")
+                .register(meterRegistry);
+        Gauge.builder("lifecycle.sweeper.backlog", paymentBacklog, AtomicLong::get)
+                .tag("type", "payment")
+                .description("Expired pending payments found at the start of the last sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.sweeper.interval-ms:60000}",
+            initialDelayString = "${app.sweeper.initial-delay-ms:30000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+
+        String token = UUID.randomUUID().toString();
+        if (!acquireLock(token)) {
+            return;
+        }
+
+        try {
+            sweepTimer.record(this::sweepAll);
+        } finally {
+            releaseLock(token);
+        }
+    }
+
+    private void sweepAll() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        LocalDateTime bookingCutoff = now.minusHours(bookingPendingTtlHours);
+        bookingBacklog.set(bookingRepository.countExpiredPending(bookingCutoff, today));
+        int canceled = sweepChunks(
+                (cursorCreatedAt, cursorId) -> bookingRepository.lockExpiredPending(
+                        bookingCutoff, today, cursorCreatedAt, cursorId, PageRequest.of(0, chunkSize)),
+                ids -> {
+                    int updated = bookingRepository.cancelPending(ids);
+                    bookingAvailabilityIndex.untrack(ids);
+                    return updated;
+                }
+        );
+        expiredBookings.increment(canceled);
+
+        LocalDateTime paymentCutoff = now.minusMinutes(Math.max(txnTimeoutMinutes, 1) + paymentGraceMinutes);
+        paymentBacklog.set(paymentRepository.countExpiredPending(Payment.PaymentMethod.vnpay, paymentCutoff));
+        int failed = sweepChunks(
+                (cursorCreatedAt, cursorId) -> paymentRepository.lockExpiredPending(
+                        Payment.PaymentMethod.vnpay, paymentCutoff, cursorCreatedAt, cursorId,
+                        PageRequest.of(0, chunkSize)),
+                paymentRepository::failPending
+        );
+        expiredPayments.increment(failed);
+
+        if (canceled > 0 || failed > 0) {
+            log.info("Lifecycle sweep canceled {}/{} stale bookings and failed {}/{} expired payments",
+                    canceled, bookingBacklog.get(), failed, paymentBacklog.get());
+        }
+    }
+
+    /**
+     * @param lockChunk Khóa và trả về lô kế tiếp sau cursor (createdAt, id)
+     * @param expire Cập nhật các id đã khóa, trả về số dòng đã đổi
+     * @return Tổng số dòng đã cập nhật
+     */
+    private int sweepChunks(
+            BiFunction<LocalDateTime, Long, List<ExpiredRowView>> lockChunk,
+            ToIntFunction<List<Long>> expire
+    ) {
+        LocalDateTime cursorCreatedAt = CURSOR_START;
+        Long cursorId = 0L;
+        int total = 0;
+
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            LocalDateTime fromCreatedAt = cursorCreatedAt;
+            Long fromId = cursorId;
+            ChunkResult result = chunkTransaction.execute(status -> {
+                List<ExpiredRowView> rows = lockChunk.apply(fromCreatedAt, fromId);
+                if (rows.isEmpty()) {
+                    return null;
+                }
+                List<Long> ids = rows.stream().map(ExpiredRowView::getId).toList();
+                return new ChunkResult(rows.getLast(), rows.size(), expire.applyAsInt(ids));
+            });
+
+            if (result == null) {
+                break;
+            }
+            total += result.updated();
+            // Dòng bị SKIP LOCKED nằm trước cursor sẽ được xử lý ở lượt sau
+            cursorCreatedAt = result.last().getCreatedAt();
+            cursorId = result.last().getId();
+            if (result.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private boolean acquireLock(String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, token, Duration.ofSeconds(lockTtlSeconds)));
+        } catch (Exception ex) {
+            log.warn("Skipping lifecycle sweep, could not acquire Redis lock: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseLock(String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(LOCK_KEY), token);
+        } catch (Exception ex) {
+            // Khóa tự hết hạn sau lock-ttl-seconds
+            log.warn("Failed to release lifecycle sweeper lock: {}", ex.getMessage());
+        }
+    }
+
+    private record ChunkResult(ExpiredRowView last, int size, int updated) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.rent_vehicle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Lưu ảnh vào thư mục local, dùng thay Cloudinary khi chạy thử/kiểm thử.
+ * URL trả về là base-url + đường dẫn tương đối; việc phục vụ file (nginx, static server...) nằm ngoài ứng dụng.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+@Slf4j
+public class LocalImageStorage implements ImageStorage {
+
+    @Value("${app.storage.local.directory:uploads}")
+    private String directory;
+
+    @Value("${app.storage.local.base-url:}")
+    private String baseUrl;
+
+    @Override
+    public String store(Path file, String folder, String originalFilename) throws IOException {
+        String relativePath = "rent-vehicle/" + folder + "/" + UUID.randomUUID() + extensionOf(originalFilename);
+        Path target = root().resolve(relativePath).normalize();
+        Files.createDirectories(target.getParent());
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        return urlPrefix() + relativePath;
+    }
+
+    @Override
+    public void delete(String imageUrl) throws IOException {
+        String prefix = urlPrefix();
+        if (imageUrl == null || !imageUrl.startsWith(prefix)) {
+            return;
+        }
+
+        Path target = root().resolve(imageUrl.substring(prefix.length())).normalize();
+        // Không cho xóa file nằm ngoài thư mục lưu trữ (ví dụ URL chứa "../")
+        if (target.startsWith(root()) && Files.deleteIfExists(target)) {
+            log.info("Image deleted successfully: {}", target);
+        }
+    }
+
+    private Path root() {
+        return Path.of(directory).toAbsolutePath().normalize();
+    }
+
+    private String urlPrefix() {
+        String prefix = baseUrl == null || baseUrl.isBlank() ? root().toUri().toString() : baseUrl;
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null) {
+            return "";
+        }
+        int lastDot = filename.lastIndexOf('.');
+        String extension = lastDot >= 0 ? filename.substring(lastDot).toLowerCase(Locale.ROOT) : "";
+        return extension.matches("\\.[a-z0-9]{1,5}") ? extension : "";
+    }
+}
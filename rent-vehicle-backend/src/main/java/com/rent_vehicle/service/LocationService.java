@@ -0,0 +1,130 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.dto.response.LocationResponse;
+import com.rent_vehicle.model.Location;
+import com.rent_vehicle.repository.LocationRepository;
+import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.util.LocationNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Danh mục vị trí. Vị trí được nhận diện theo tên đã bỏ dấu (LocationNormalizer.fold), nên
+ * "Hà Nội", "ha noi" và "HA  NOI" là cùng một dòng trong bảng locations.
+ */
+@Service
+@Slf4j
+public class LocationService {
+
+    private final LocationRepository locationRepository;
+    private final VehicleRepository vehicleRepository;
+    private final TransactionTemplate newTransaction;
+
+    public LocationService(
+            LocationRepository locationRepository,
+            VehicleRepository vehicleRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.locationRepository = locationRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Tìm vị trí theo tên bất kỳ, không tạo mới
+     */
+    public Optional<Location> find(String name) {
+        String code = LocationNormalizer.fold(name);
+        return code == null ? Optional.empty() : locationRepository.findByCode(code);
+    }
+
+    /**
+     * Lấy vị trí theo tên, tạo mới nếu chưa có.
+     *
+     * Insert chạy trong transaction riêng để hai request tạo cùng một vị trí không làm hỏng
+     * transaction của nhau: bên thua unique(code) đọc lại dòng bên kia vừa commit.
+     * @return Vị trí đã commit, null nếu tên rỗng
+     */
+    public Location resolve(String name) {
+        String code = LocationNormalizer.fold(name);
+        if (code == null) {
+            return null;
+        }
+
+        try {
+            return newTransaction.execute(status -> locationRepository.findByCode(code)
+                    .orElseGet(() -> locationRepository.saveAndFlush(Location.builder()
+                            .code(code)
+                            .name(LocationNormalizer.displayName(name))
+                            .build())));
+        } catch (DataIntegrityViolationException ex) {
+            return newTransaction.execute(status -> locationRepository.findByCode(code).orElseThrow(() -> ex));
+        }
+    }
+
+    public List<LocationResponse> getAllWithFleetCounts() {
+        return locationRepository.findAllWithFleetCounts().stream()
+                .map(row -> LocationResponse.builder()
+                        .id(row.getId())
+                        .name(row.getName())
+                        .availableVehicles(row.getAvailableVehicles())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Gắn location_id cho các xe tạo trước khi có bảng locations (chỉ lưu chuỗi location).
+     * Các cách viết của cùng một vị trí ("Hà Nội", "ha noi") gộp về một dòng, tên hiển thị ưu tiên
+     * cách viết có dấu rồi đến cách viết nhiều xe nhất. Chạy mỗi lần khởi động, không làm gì khi
+     * mọi xe đã được gắn; mỗi vị trí chạy trong transaction riêng nên lỗi ở một vị trí không chặn
+     * các vị trí còn lại.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVehicleLocations() {
+        List<String> names = vehicleRepository.findUnlinkedLocationNames();
+        if (names.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Map<String, List<String>> namesByCode = new LinkedHashMap<>();
+        for (String name : names) {
+            String code = LocationNormalizer.fold(name);
+            if (code != null) {
+                namesByCode.computeIfAbsent(code, key -> new ArrayList<>()).add(name);
+            }
+        }
+
+        int linked = 0;
+        for (List<String> variants : namesByCode.values()) {
+            String preferred = variants.stream()
+                    .filter(LocationNormalizer::hasDiacritics)
+                    .findFirst()
+                    .orElse(variants.get(0));
+            try {
+                Location location = resolve(preferred);
+                Integer updated = newTransaction.execute(status -> variants.stream()
+                        .mapToInt(name -> vehicleRepository.linkLocation(name, location, location.getName()))
+                        .sum());
+                linked += updated != null ? updated : 0;
+            } catch (RuntimeException ex) {
+                log.warn("Could not link vehicles at location '{}': {}", preferred, ex.getMessage());
+            }
+        }
+        log.info("Linked {} vehicles to {} locations in {} ms",
+                linked, namesByCode.size(), System.currentTimeMillis() - startedAt);
+    }
+}
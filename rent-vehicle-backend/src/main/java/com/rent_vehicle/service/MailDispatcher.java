@@ -0,0 +1,335 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gửi email bất đồng bộ qua một hàng đợi giới hạn.
+ *
+ * Mỗi worker giữ một kết nối SMTP (Transport) lâu dài và gửi nhiều message trên cùng kết nối,
+ * kết nối được đóng khi rảnh quá lâu hoặc khi gặp lỗi. Số message gửi tới mỗi domain người nhận
+ * được giới hạn theo token bucket; lỗi tạm thời được thử lại với backoff tăng dần.
+ */
+@Component
+@Slf4j
+public class MailDispatcher {
+
+    private static final long SHUTDOWN_JOIN_MS = 5000;
+
+    private final JavaMailSender mailSender;
+    private final DelayQueue<MailTask> queue = new DelayQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<String, DomainBucket> domainBuckets = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final int workerCount;
+    private final Timer sendTimer;
+    private final Counter failedCounter;
+    private volatile boolean running = true;
+
+    @Value("${app.mail.dispatcher.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.dispatcher.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.mail.dispatcher.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    @Value("${app.mail.dispatcher.per-domain-rate-per-second:5}")
+    private double perDomainRatePerSecond;
+
+    @Value("${app.mail.dispatcher.connection-idle-ms:30000}")
+    private long connectionIdleMs;
+
+    public MailDispatcher(
+            JavaMailSender mailSender,
+            MeterRegistry meterRegistry,
+            @Value("${app.mail.dispatcher.workers:2}") int workerCount
+    ) {
+        this.mailSender = mailSender;
+        this.sendTimer = Timer.builder("mail.dispatcher.send.latency")
+                .description("Time spent handing a message to the SMTP server")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("mail.dispatcher.failed")
+                .description("Messages dropped after exhausting retries")
+                .register(meterRegistry);
+        Gauge.builder("mail.dispatcher.queue.depth", pending, AtomicInteger::get)
+                .description("Messages waiting to be sent or retried")
+                .register(meterRegistry);
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Khởi động worker sau khi các giá trị cấu hình đã được inject
+     */
+    @PostConstruct
+    public void start() {
+        // Giữ platform thread kể cả khi bật virtual thread: SMTPTransport.sendMessage là synchronized
+        // và block trên socket, nên sẽ pin carrier thread trong suốt thời gian gửi
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "mail-dispatcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Đưa email vào hàng đợi. Future hoàn thành khi SMTP server đã nhận message, hoặc lỗi
+     * AppException(EMAIL_SEND_FAILED) khi hết số lần thử. Ném lỗi ngay nếu hàng đợi đã đầy.
+     */
+    public CompletableFuture<Void> submit(String from, String to, String subject, String text) {
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            log.error("Mail queue is full ({} messages), rejecting email to {}", queueCapacity, to);
+            throw new AppException(ErrorCode.EMAIL_SEND_FAILED);
+        }
+
+        MailTask task = new MailTask(from, to, subject, text, domainOf(to));
+        queue.offer(task);
+        return task.result;
+    }
+
+    /**
+     * Dừng worker rồi báo lỗi cho các message còn trong hàng đợi, để bên đang chờ future
+     * (ví dụ BookingEmailEventConsumer) không phải chờ đến timeout
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(SHUTDOWN_JOIN_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Worker có thể đẩy lại task vào hàng đợi ngay trước khi dừng nên chỉ dọn sau khi đã join
+        for (MailTask task : new ArrayList<>(queue)) {
+            if (queue.remove(task)) {
+                complete(task, new AppException(ErrorCode.EMAIL_SEND_FAILED));
+            }
+        }
+    }
+
+    private void runWorker() {
+        Transport transport = null;
+        long lastUsedAt = 0;
+
+        while (running) {
+            MailTask task;
+            try {
+                task = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                break;
+            }
+
+            if (task == null) {
+                if (transport != null && System.currentTimeMillis() - lastUsedAt > connectionIdleMs) {
+                    close(transport);
+                    transport = null;
+                }
+                continue;
+            }
+
+            long waitMs = bucketFor(task.domain).reserve();
+            if (waitMs > 0) {
+                // Domain đã chạm giới hạn, đẩy lại vào hàng đợi đến lượt kế tiếp
+                task.notBefore = System.currentTimeMillis() + waitMs;
+                queue.offer(task);
+                continue;
+            }
+
+            try {
+                transport = ensureConnected(transport);
+                send(transport, task);
+                lastUsedAt = System.currentTimeMillis();
+                complete(task, null);
+            } catch (Exception ex) {
+                // Kết nối có thể đã hỏng, mở lại ở lần gửi sau
+                close(transport);
+                transport = null;
+                handleFailure(task, ex);
+            }
+        }
+
+        close(transport);
+    }
+
+    private Transport ensureConnected(Transport transport) throws MessagingException {
+        if (transport != null && transport.isConnected()) {
+            return transport;
+        }
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            return null;
+        }
+
+        Transport connected = sender.getSession().getTransport(sender.getProtocol());
+        connected.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        return connected;
+    }
+
+    private void send(Transport transport, MailTask task) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        if (task.from != null && !task.from.isBlank()) {
+            helper.setFrom(task.from);
+        }
+        helper.setTo(task.to);
+        helper.setSubject(task.subject);
+        helper.setText(task.text);
+
+        long startedAt = System.nanoTime();
+        if (transport != null) {
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+        } else {
+            mailSender.send(message);
+        }
+        sendTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void handleFailure(MailTask task, Exception ex) {
+        task.attempts++;
+        boolean permanent = ex instanceof AuthenticationFailedException
+                || (ex instanceof SendFailedException sendFailed && sendFailed.getInvalidAddresses() != null
+                        && sendFailed.getInvalidAddresses().length > 0);
+
+        if (permanent || task.attempts >= maxAttempts || !running) {
+            if (ex instanceof AuthenticationFailedException) {
+                log.error("Mail authentication failed for recipient {}", task.to);
+            } else {
+                log.error("Failed to send email to {} after {} attempt(s): {}", task.to, task.attempts, ex.getMessage());
+            }
+            failedCounter.increment();
+            complete(task, new AppException(ErrorCode.EMAIL_SEND_FAILED));
+            return;
+        }
+
+        long backoff = retryBackoffMs << (task.attempts - 1);
+        log.warn("Failed to send email to {} (attempt {}), retrying in {} ms: {}", task.to, task.attempts, backoff, ex.getMessage());
+        task.notBefore = System.currentTimeMillis() + backoff;
+        queue.offer(task);
+    }
+
+    private void complete(MailTask task, RuntimeException failure) {
+        pending.decrementAndGet();
+        if (failure == null) {
+            task.result.complete(null);
+        } else {
+            task.result.completeExceptionally(failure);
+        }
+    }
+
+    private void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException | MailException ex) {
+            log.debug("Failed to close SMTP connection cleanly", ex);
+        }
+    }
+
+    private DomainBucket bucketFor(String domain) {
+        return domainBuckets.computeIfAbsent(domain, key -> new DomainBucket(perDomainRatePerSecond));
+    }
+
+    private static String domainOf(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        return at >= 0 ? email.substring(at + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static final class MailTask implements Delayed {
+        final String from;
+        final String to;
+        final String subject;
+        final String text;
+        final String domain;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        volatile long notBefore = System.currentTimeMillis();
+        int attempts = 0;
+
+        MailTask(String from, String to, String subject, String text, String domain) {
+            this.from = from;
+            this.to = to;
+            this.subject = subject;
+            this.text = text;
+            this.domain = domain;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(notBefore - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(notBefore, ((MailTask) other).notBefore);
+        }
+    }
+
+    /**
+     * Token bucket đơn giản cho một domain: tối đa ratePerSecond message mỗi giây, cho phép burst bằng rate
+     */
+    private static final class DomainBucket {
+        private final double ratePerMs;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.currentTimeMillis();
+
+        DomainBucket(double ratePerSecond) {
+            this.ratePerMs = ratePerSecond / 1000.0;
+            this.capacity = Math.max(1.0, ratePerSecond);
+            this.tokens = capacity;
+        }
+
+        /**
+         * Lấy một token; trả về 0 nếu được gửi ngay, ngược lại là số ms cần chờ
+         */
+        synchronized long reserve() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerMs);
+            refilledAt = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0;
+            }
+            return (long) Math.ceil((1.0 - tokens) / ratePerMs);
+        }
+    }
+}
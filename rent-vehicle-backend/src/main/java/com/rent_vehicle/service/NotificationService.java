@@ -1,6 +1,7 @@
 package com.rent_vehicle.service;
 
 import com.rent_vehicle.dto.response.NotificationResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
@@ -8,6 +9,7 @@ import com.rent_vehicle.model.Booking;
 import com.rent_vehicle.model.Notification;
 import com.rent_vehicle.model.User;
 import com.rent_vehicle.repository.NotificationRepository;
+import com.rent_vehicle.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -61,6 +63,34 @@ public class NotificationService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<NotificationResponse> getMyNotificationsByCursor(
+            Long userId,
+            String cursor,
+            int size,
+            boolean includeTotal
+    ) {
+        if (size < 1) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        List<Notification> rows = notificationRepository.findPageByUserIdAfter(
+                userId,
+                pageCursor.createdAt(),
+                pageCursor.id(),
+                PageRequest.of(0, size + 1)
+        );
+
+        return CursorPageResponse.of(
+                rows,
+                size,
+                notification -> new PageCursor(notification.getCreatedAt(), notification.getId()),
+                this::toResponse,
+                includeTotal ? notificationRepository.countByUserId(userId) : null
+        );
+    }
+
     public NotificationResponse markAsRead(Long id, Long userId) {
         Notification notification = notificationRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new AppException(ErrorCode.NOTIFICATION_NOT_FOUND));
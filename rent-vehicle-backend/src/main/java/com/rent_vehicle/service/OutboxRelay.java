@@ -0,0 +1,169 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.model.OutboxEvent;
+import com.rent_vehicle.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc các event pending trong bảng outbox theo lô, gửi lên Kafka và đánh dấu đã publish.
+ * Event gửi lỗi được thử lại với backoff tăng dần; quá số lần cho phép thì chuyển sang failed.
+ *
+ * Lô event được nhận (claim) trong một transaction ngắn bằng cách dời nextAttemptAt thêm claim-lease-ms,
+ * gửi lên Kafka ngoài transaction, rồi ghi kết quả trong transaction thứ hai; connection và khóa dòng
+ * không bị giữ trong lúc chờ ack.
+ *
+ * Đảm bảo at-least-once: nếu instance chết sau khi gửi nhưng trước khi ghi kết quả, event sẽ được gửi lại
+ * khi lease hết hạn.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transaction;
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout-ms:35000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${app.outbox.max-retry-backoff-ms:300000}")
+    private long maxRetryBackoffMs;
+
+    @Value("${app.outbox.claim-lease-ms:60000}")
+    private long claimLeaseMs;
+
+    @Value("${app.outbox.retention-days:7}")
+    private long retentionDays;
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            KafkaTemplate<String, String> kafkaTemplate,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        List<OutboxEvent> events = transaction.execute(status -> claimDueEvents());
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+
+        // Gửi cả lô trước rồi mới chờ kết quả, để producer gộp các record thành ít request
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            futures.add(send(event));
+        }
+        kafkaTemplate.flush();
+
+        List<Long> publishedIds = new ArrayList<>();
+        Map<Long, Exception> failures = new HashMap<>();
+        long deadline = System.currentTimeMillis() + sendTimeoutMs;
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+                futures.get(i).get(remaining, TimeUnit.MILLISECONDS);
+                publishedIds.add(event.getId());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failures.put(event.getId(), ex);
+            } catch (Exception ex) {
+                failures.put(event.getId(), ex);
+            }
+        }
+
+        transaction.executeWithoutResult(status -> {
+            if (!publishedIds.isEmpty()) {
+                outboxEventRepository.markPublished(publishedIds, LocalDateTime.now());
+            }
+            if (!failures.isEmpty()) {
+                for (OutboxEvent event : outboxEventRepository.findAllById(failures.keySet())) {
+                    scheduleRetry(event, failures.get(event.getId()));
+                }
+            }
+        });
+
+        log.info("Outbox relay published {}/{} events", publishedIds.size(), events.size());
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 0 4 * * *}")
+    @Transactional
+    public void purgePublished() {
+        int deleted = outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} published outbox events older than {} days", deleted, retentionDays);
+    }
+
+    /**
+     * Khóa lô đến hạn bằng SKIP LOCKED và dời hạn gửi của chúng, khóa được nhả ngay khi commit
+     */
+    private List<OutboxEvent> claimDueEvents() {
+        List<OutboxEvent> events = outboxEventRepository.lockDueEvents(LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (!events.isEmpty()) {
+            outboxEventRepository.claim(
+                    events.stream().map(OutboxEvent::getId).toList(),
+                    LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(claimLeaseMs))
+            );
+        }
+        return events;
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(OutboxEvent event) {
+        try {
+            return kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload());
+        } catch (Exception ex) {
+            // send() có thể ném ngay khi không lấy được metadata của topic (hết max.block.ms)
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private void scheduleRetry(OutboxEvent event, Exception ex) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(ex.getCause() != null ? ex.getCause().toString() : ex.toString()));
+
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEvent.OutboxStatus.failed);
+            log.error("Giving up on outbox event {} for topic {} after {} attempts", event.getId(), event.getTopic(), attempts, ex);
+            return;
+        }
+
+        long backoff = Math.min(retryBackoffMs << Math.min(attempts - 1, 20), maxRetryBackoffMs);
+        event.setNextAttemptAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff)));
+        log.warn("Failed to publish outbox event {} to topic {} (attempt {}), retrying in {} ms",
+                event.getId(), event.getTopic(), attempts, backoff);
+    }
+
+    private String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
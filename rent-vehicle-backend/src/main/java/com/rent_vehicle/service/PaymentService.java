@@ -2,6 +2,7 @@ package com.rent_vehicle.service;
 
 import com.rent_vehicle.dto.request.CreatePaymentRequest;
 import com.rent_vehicle.dto.response.PaymentResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.model.Booking;
 import com.rent_vehicle.model.Payment;
@@ -9,6 +10,8 @@ import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
 import com.rent_vehicle.repository.BookingRepository;
 import com.rent_vehicle.repository.PaymentRepository;
+import com.rent_vehicle.util.PageCursor;
+import com.rent_vehicle.repository.projection.PaymentExportRow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,6 +19,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,8 +28,21 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class PaymentService {
+
+    private static final List<TableExporter.Column<PaymentExportRow>> EXPORT_COLUMNS = List.of(
+            TableExporter.column("id", PaymentExportRow::getId),
+            TableExporter.column("bookingId", PaymentExportRow::getBookingId),
+            TableExporter.column("amount", PaymentExportRow::getAmount),
+            TableExporter.column("method", PaymentExportRow::getMethod),
+            TableExporter.column("status", PaymentExportRow::getStatus),
+            TableExporter.column("createdAt", PaymentExportRow::getCreatedAt)
+    );
+
     private final PaymentRepository paymentRepository;
     private final BookingRepository bookingRepository;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final VehicleModelStatsService vehicleModelStatsService;
+    private final TableExporter tableExporter;
 
     @PreAuthorize("hasAuthority('ADMIN')")
     public PaymentResponse createPayment(CreatePaymentRequest request) {
@@ -61,8 +78,12 @@ public class PaymentService {
         // If payment is successful, update booking status
         if (paymentStatus.equals(Payment.PaymentStatus.success)) {
             Booking booking = payment.getBooking();
+            boolean alreadyCompleted = booking.getStatus() == Booking.BookingStatus.completed;
             booking.setStatus(Booking.BookingStatus.completed);
-            bookingRepository.save(booking);
+            bookingAvailabilityIndex.track(bookingRepository.save(booking));
+            if (!alreadyCompleted) {
+                vehicleModelStatsService.recordTripCompleted(booking);
+            }
         }
 
         return toResponse(paymentRepository.save(payment));
@@ -104,6 +125,14 @@ public class PaymentService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Export toàn bộ thanh toán (CSV/NDJSON), ghi từng dòng ra response
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public StreamingResponseBody exportAll(TableExporter.Format format) {
+        return tableExporter.export(paymentRepository::streamAllForExport, EXPORT_COLUMNS, format);
+    }
+
     @Transactional(readOnly = true)
     @PreAuthorize("hasAuthority('ADMIN')")
     public PageResponse<PaymentResponse> getAllPaginated(int page, int size) {
@@ -123,6 +152,25 @@ public class PaymentService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CursorPageResponse<PaymentResponse> getAllByCursor(String cursor, int size, boolean includeTotal) {
+        if (size < 1) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        List<Payment> rows = paymentRepository.findPageAfter(pageCursor.createdAt(), pageCursor.id(), PageRequest.of(0, size + 1));
+
+        return CursorPageResponse.of(
+                rows,
+                size,
+                payment -> new PageCursor(payment.getCreatedAt(), payment.getId()),
+                this::toResponse,
+                includeTotal ? paymentRepository.count() : null
+        );
+    }
+
     private boolean isValidPaymentMethod(String method) {
         return method.equals("vnpay") || method.equals("momo") || method.equals("cash");
     }
@@ -2,6 +2,7 @@ package com.rent_vehicle.service;
 
 import com.rent_vehicle.dto.request.CreateReviewRequest;
 import com.rent_vehicle.dto.response.ReviewResponse;
+import com.rent_vehicle.dto.response.CursorPageResponse;
 import com.rent_vehicle.dto.response.PageResponse;
 import com.rent_vehicle.model.Booking;
 import com.rent_vehicle.model.Review;
@@ -11,7 +12,10 @@ import com.rent_vehicle.exception.ErrorCode;
 import com.rent_vehicle.repository.BookingRepository;
 import com.rent_vehicle.repository.ReviewRepository;
 import com.rent_vehicle.repository.UserRepository;
+import com.rent_vehicle.repository.VehicleModelRepository;
+import com.rent_vehicle.util.PageCursor;
 import com.rent_vehicle.util.SecurityUtils;
+import com.rent_vehicle.repository.projection.ReviewExportRow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,6 +23,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,9 +32,23 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class ReviewService {
+
+    private static final List<TableExporter.Column<ReviewExportRow>> EXPORT_COLUMNS = List.of(
+            TableExporter.column("id", ReviewExportRow::getId),
+            TableExporter.column("bookingId", ReviewExportRow::getBookingId),
+            TableExporter.column("userId", ReviewExportRow::getUserId),
+            TableExporter.column("userName", ReviewExportRow::getUserName),
+            TableExporter.column("rating", ReviewExportRow::getRating),
+            TableExporter.column("comment", ReviewExportRow::getComment),
+            TableExporter.column("createdAt", ReviewExportRow::getCreatedAt)
+    );
+
     private final ReviewRepository reviewRepository;
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
+    private final VehicleModelRepository vehicleModelRepository;
+    private final VehicleModelStatsService vehicleModelStatsService;
+    private final TableExporter tableExporter;
 
     @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
     public ReviewResponse createReview(CreateReviewRequest request) {
@@ -58,6 +77,7 @@ public class ReviewService {
                 .build();
 
         Review saved = reviewRepository.save(review);
+        vehicleModelStatsService.recordReviewCreated(booking.getVehicleModel().getId(), saved.getRating());
         return toResponse(saved);
     }
 
@@ -78,10 +98,17 @@ public class ReviewService {
             throw new AppException(ErrorCode.INVALID_RATING);
         }
 
+        int oldRating = review.getRating();
         review.setRating(request.getRating());
         review.setComment(request.getComment());
 
-        return toResponse(reviewRepository.save(review));
+        Review saved = reviewRepository.save(review);
+        vehicleModelStatsService.recordReviewUpdated(
+                review.getBooking().getVehicleModel().getId(),
+                oldRating,
+                saved.getRating()
+        );
+        return toResponse(saved);
     }
 
     @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
@@ -97,6 +124,7 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        vehicleModelStatsService.recordReviewDeleted(review.getBooking().getVehicleModel().getId(), review.getRating());
     }
 
     @Transactional(readOnly = true)
@@ -137,7 +165,9 @@ public class ReviewService {
 
     @Transactional(readOnly = true)
     public Double getAverageRating(Long vehicleModelId) {
-        return reviewRepository.getAverageRatingByVehicleModelId(vehicleModelId);
+        return vehicleModelRepository.findById(vehicleModelId)
+                .map(vehicleModelStatsService::getAverageRating)
+                .orElse(null);
     }
 
     @Transactional(readOnly = true)
@@ -148,6 +178,14 @@ public class ReviewService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Export toàn bộ đánh giá (CSV/NDJSON), ghi từng dòng ra response
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public StreamingResponseBody exportAll(TableExporter.Format format) {
+        return tableExporter.export(reviewRepository::streamAllForExport, EXPORT_COLUMNS, format);
+    }
+
     @Transactional(readOnly = true)
     @PreAuthorize("hasAuthority('ADMIN')")
     public PageResponse<ReviewResponse> getAllPaginated(int page, int size) {
@@ -167,6 +205,25 @@ public class ReviewService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CursorPageResponse<ReviewResponse> getAllByCursor(String cursor, int size, boolean includeTotal) {
+        if (size < 1) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        List<Review> rows = reviewRepository.findPageAfter(pageCursor.createdAt(), pageCursor.id(), PageRequest.of(0, size + 1));
+
+        return CursorPageResponse.of(
+                rows,
+                size,
+                review -> new PageCursor(review.getCreatedAt(), review.getId()),
+                this::toResponse,
+                includeTotal ? reviewRepository.count() : null
+        );
+    }
+
     private ReviewResponse toResponse(Review review) {
         return ReviewResponse.builder()
                 .id(review.getId())
@@ -0,0 +1,177 @@
+package com.rent_vehicle.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Export bảng lớn ra CSV hoặc NDJSON mà không nạp toàn bộ vào bộ nhớ.
+ *
+ * Query trả về Stream (JDBC cursor chỉ đọc tiến), mỗi dòng được ghi thẳng ra response rồi bỏ đi.
+ * Stream được đọc trong một transaction read-only riêng, mở trên thread ghi response.
+ * Với MySQL, fetch size của query chỉ có tác dụng khi URL có useCursorFetch=true; thiếu tham số này
+ * driver vẫn đọc hết result set vào bộ nhớ.
+ */
+@Component
+public class TableExporter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TableExporter(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format from(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                throw new AppException(ErrorCode.INVALID_EXPORT_FORMAT);
+            }
+        }
+    }
+
+    public record Column<T>(String name, Function<T, Object> value) {
+    }
+
+    public static <T> Column<T> column(String name, Function<T, Object> value) {
+        return new Column<>(name, value);
+    }
+
+    /**
+     * Tạo body cho response; query chỉ chạy khi body được ghi
+     * @param query Repository method trả về Stream, được đóng sau khi ghi xong
+     */
+    public <T> StreamingResponseBody export(Supplier<Stream<T>> query, List<Column<T>> columns, Format format) {
+        return out -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get()) {
+                write(rows, columns, format, out);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    public static ResponseEntity<StreamingResponseBody> attachment(String name, Format format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.extension)
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    private static <T> void write(Stream<T> rows, List<Column<T>> columns, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writeCsv(rows, columns, writer);
+        } else {
+            writeNdjson(rows, columns, writer);
+        }
+        writer.flush();
+    }
+
+    private static <T> void writeCsv(Stream<T> rows, List<Column<T>> columns, Writer writer) throws IOException {
+        writer.write(String.join(",", columns.stream().map(Column::name).toList()));
+        writer.write("\r\n");
+
+        for (T row : (Iterable<T>) rows::iterator) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(columns.get(i).value().apply(row)));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    private static <T> void writeNdjson(Stream<T> rows, List<Column<T>> columns, Writer writer) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        // Writer được flush một lần ở cuối, không flush theo từng dòng
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+
+        boolean empty = true;
+        for (T row : (Iterable<T>) rows::iterator) {
+            generator.writeStartObject();
+            for (Column<T> column : columns) {
+                generator.writeFieldName(column.name());
+                writeJsonValue(generator, column.value().apply(row));
+            }
+            generator.writeEndObject();
+            empty = false;
+        }
+        if (!empty) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private static void writeJsonValue(JsonGenerator generator, Object value) throws IOException {
+        switch (value) {
+            case null -> generator.writeNull();
+            case BigDecimal decimal -> generator.writeNumber(decimal);
+            case Long number -> generator.writeNumber(number);
+            case Integer number -> generator.writeNumber(number);
+            case Boolean bool -> generator.writeBoolean(bool);
+            default -> generator.writeString(value.toString());
+        }
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+
+        String text = value.toString();
+        // Chặn công thức khi file được mở bằng Excel/Sheets (chỉ với dữ liệu dạng chuỗi)
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -4,9 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -16,6 +17,7 @@ import java.util.concurrent.TimeUnit;
 public class TokenService {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final AccessTokenBlacklistCache accessTokenBlacklistCache;
 
     @Value("${jwt.access-token-duration:900}")
     private long accessTokenDuration; // 15 minutes
@@ -32,12 +34,61 @@ public class TokenService {
     // Redis key prefixes
     private static final String REFRESH_TOKEN_PREFIX = "refresh_token:";
     private static final String SESSION_PREFIX = "session:";
-    private static final String BLACKLIST_PREFIX = "blacklist:";
+    static final String BLACKLIST_PREFIX = "blacklist:";
     private static final String USER_SESSIONS_PREFIX = "user_sessions:";
     private static final String ADMIN_OTP_PREFIX = "admin_otp:";
     private static final String PASSWORD_CHANGE_OTP_PREFIX = "password_change_otp:";
     private static final String PASSWORD_RESET_OTP_PREFIX = "password_reset_otp:";
 
+    // Các thao tác session gồm nhiều lệnh được gộp thành Lua script: một round-trip và chạy nguyên tử.
+    // Script tự ghép key từ giá trị đọc được nên chỉ dùng với Redis đơn (không chạy trên Redis Cluster).
+
+    // KEYS: tokenKey, sessionKey, sessionsKey | ARGV: refreshToken, userId, ttlSeconds, sessionId
+    private static final RedisScript<Long> SAVE_REFRESH_TOKEN_SCRIPT = RedisScript.of("""
+            redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[3])
+            redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3])
+            redis.call('SADD', KEYS[3], ARGV[4])
+            redis.call('EXPIRE', KEYS[3], ARGV[3])
+            return 1
+            """, Long.class);
+
+    // KEYS: sessionKey | ARGV: refreshTokenPrefix, sessionId
+    private static final RedisScript<String> GET_REFRESH_TOKEN_BY_SESSION_SCRIPT = RedisScript.of("""
+            local userId = redis.call('GET', KEYS[1])
+            if not userId then
+                return false
+            end
+            return redis.call('GET', ARGV[1] .. userId .. ':' .. ARGV[2])
+            """, String.class);
+
+    // KEYS: tokenKey, sessionKey, sessionsKey | ARGV: sessionId
+    private static final RedisScript<Long> DELETE_REFRESH_TOKEN_SCRIPT = RedisScript.of("""
+            redis.call('DEL', KEYS[1], KEYS[2])
+            redis.call('SREM', KEYS[3], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS: sessionKey | ARGV: refreshTokenPrefix, userSessionsPrefix, sessionId. Trả về userId hoặc nil
+    private static final RedisScript<String> DELETE_SESSION_SCRIPT = RedisScript.of("""
+            local userId = redis.call('GET', KEYS[1])
+            if not userId then
+                return false
+            end
+            redis.call('DEL', ARGV[1] .. userId .. ':' .. ARGV[3], KEYS[1])
+            redis.call('SREM', ARGV[2] .. userId, ARGV[3])
+            return userId
+            """, String.class);
+
+    // KEYS: sessionsKey | ARGV: refreshTokenPrefix của user (refresh_token:{userId}:), sessionPrefix
+    private static final RedisScript<Long> DELETE_ALL_REFRESH_TOKENS_SCRIPT = RedisScript.of("""
+            local sessionIds = redis.call('SMEMBERS', KEYS[1])
+            for _, sessionId in ipairs(sessionIds) do
+                redis.call('DEL', ARGV[1] .. sessionId, ARGV[2] .. sessionId)
+            end
+            redis.call('DEL', KEYS[1])
+            return #sessionIds
+            """, Long.class);
+
     /**
      * Lưu refresh token vào Redis với session ID
      * @param userId ID của user
@@ -45,18 +96,16 @@ public class TokenService {
      * @param sessionId Session ID (gửi về client qua cookie)
      */
     public void saveRefreshToken(Long userId, String refreshToken, String sessionId) {
-        // Lưu refresh token
+        // Lưu refresh token, mapping session -> userId (để tìm refresh token chỉ từ sessionId)
+        // và thêm sessionId vào set sessions của user
         String tokenKey = REFRESH_TOKEN_PREFIX + userId + ":" + sessionId;
-        redisTemplate.opsForValue().set(tokenKey, refreshToken, refreshTokenDuration, TimeUnit.SECONDS);
-        
-        // Lưu mapping session -> userId để có thể tìm refresh token chỉ từ sessionId
         String sessionKey = SESSION_PREFIX + sessionId;
-        redisTemplate.opsForValue().set(sessionKey, String.valueOf(userId), refreshTokenDuration, TimeUnit.SECONDS);
-        
-        // Thêm sessionId vào set sessions của user
         String sessionsKey = USER_SESSIONS_PREFIX + userId;
-        redisTemplate.opsForSet().add(sessionsKey, sessionId);
-        redisTemplate.expire(sessionsKey, refreshTokenDuration, TimeUnit.SECONDS);
+        redisTemplate.execute(
+                SAVE_REFRESH_TOKEN_SCRIPT,
+                List.of(tokenKey, sessionKey, sessionsKey),
+                refreshToken, String.valueOf(userId), String.valueOf(refreshTokenDuration), sessionId
+        );
         
         log.info("Saved refresh token for user {} with sessionId {}", userId, sessionId);
     }
@@ -74,12 +123,11 @@ public class TokenService {
      * Lấy refresh token từ Redis bằng sessionId
      */
     public String getRefreshTokenBySessionId(String sessionId) {
-        Long userId = getUserIdFromSession(sessionId);
-        if (userId == null) {
-            return null;
-        }
-        String tokenKey = REFRESH_TOKEN_PREFIX + userId + ":" + sessionId;
-        return redisTemplate.opsForValue().get(tokenKey);
+        return redisTemplate.execute(
+                GET_REFRESH_TOKEN_BY_SESSION_SCRIPT,
+                List.of(SESSION_PREFIX + sessionId),
+                REFRESH_TOKEN_PREFIX, sessionId
+        );
     }
 
     /**
@@ -96,13 +144,8 @@ public class TokenService {
     public void deleteRefreshToken(Long userId, String sessionId) {
         String tokenKey = REFRESH_TOKEN_PREFIX + userId + ":" + sessionId;
         String sessionKey = SESSION_PREFIX + sessionId;
-        
-        redisTemplate.delete(tokenKey);
-        redisTemplate.delete(sessionKey);
-        
-        // Xóa khỏi set sessions
         String sessionsKey = USER_SESSIONS_PREFIX + userId;
-        redisTemplate.opsForSet().remove(sessionsKey, sessionId);
+        redisTemplate.execute(DELETE_REFRESH_TOKEN_SCRIPT, List.of(tokenKey, sessionKey, sessionsKey), sessionId);
         
         log.info("Deleted refresh token for user {} with sessionId {}", userId, sessionId);
     }
@@ -111,9 +154,13 @@ public class TokenService {
      * Xóa session bằng sessionId only (khi không biết userId)
      */
     public void deleteSession(String sessionId) {
-        Long userId = getUserIdFromSession(sessionId);
+        String userId = redisTemplate.execute(
+                DELETE_SESSION_SCRIPT,
+                List.of(SESSION_PREFIX + sessionId),
+                REFRESH_TOKEN_PREFIX, USER_SESSIONS_PREFIX, sessionId
+        );
         if (userId != null) {
-            deleteRefreshToken(userId, sessionId);
+            log.info("Deleted refresh token for user {} with sessionId {}", userId, sessionId);
         }
     }
 
@@ -122,19 +169,13 @@ public class TokenService {
      */
     public void deleteAllRefreshTokens(Long userId) {
         String sessionsKey = USER_SESSIONS_PREFIX + userId;
-        Set<String> sessionIds = redisTemplate.opsForSet().members(sessionsKey);
-        
-        if (sessionIds != null) {
-            for (String sessionId : sessionIds) {
-                String tokenKey = REFRESH_TOKEN_PREFIX + userId + ":" + sessionId;
-                String sessionKey = SESSION_PREFIX + sessionId;
-                redisTemplate.delete(tokenKey);
-                redisTemplate.delete(sessionKey);
-            }
-        }
-        redisTemplate.delete(sessionsKey);
+        Long deleted = redisTemplate.execute(
+                DELETE_ALL_REFRESH_TOKENS_SCRIPT,
+                List.of(sessionsKey),
+                REFRESH_TOKEN_PREFIX + userId + ":", SESSION_PREFIX
+        );
         
-        log.info("Deleted all refresh tokens for user {}", userId);
+        log.info("Deleted all refresh tokens for user {} ({} sessions)", userId, deleted);
     }
 
     /**
@@ -146,16 +187,24 @@ public class TokenService {
         if (remainingTTL > 0) {
             String key = BLACKLIST_PREFIX + jti;
             redisTemplate.opsForValue().set(key, "revoked", remainingTTL, TimeUnit.SECONDS);
+            accessTokenBlacklistCache.publishRevoked(jti, remainingTTL);
             log.info("Blacklisted access token with jti {}", jti);
         }
     }
 
     /**
-     * Kiểm tra access token có bị blacklist không
+     * Kiểm tra access token có bị blacklist không.
+     * Near-cache trả lời trường hợp chưa bị thu hồi, Redis chỉ được hỏi khi có khả năng trùng.
      */
     public boolean isAccessTokenBlacklisted(String jti) {
+        if (!accessTokenBlacklistCache.mightBeRevoked(jti)) {
+            return false;
+        }
+
         String key = BLACKLIST_PREFIX + jti;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        boolean revoked = Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        accessTokenBlacklistCache.recordConfirmation(jti, revoked);
+        return revoked;
     }
 
     /**
@@ -7,6 +7,7 @@ import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
 import com.rent_vehicle.repository.UserRepository;
 import com.rent_vehicle.util.SecurityUtils;
+import com.rent_vehicle.repository.projection.UserExportRow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,6 +15,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,7 +24,19 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class UserService {
+
+    private static final List<TableExporter.Column<UserExportRow>> EXPORT_COLUMNS = List.of(
+            TableExporter.column("id", UserExportRow::getId),
+            TableExporter.column("fullName", UserExportRow::getFullName),
+            TableExporter.column("email", UserExportRow::getEmail),
+            TableExporter.column("authProvider", UserExportRow::getAuthProvider),
+            TableExporter.column("role", UserExportRow::getRole),
+            TableExporter.column("status", UserExportRow::getStatus),
+            TableExporter.column("createdAt", UserExportRow::getCreatedAt)
+    );
+
     private final UserRepository userRepository;
+    private final TableExporter tableExporter;
 
     @Transactional(readOnly = true)
     @PreAuthorize("hasAnyAuthority('USER','ADMIN')")
@@ -111,6 +125,14 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Export toàn bộ người dùng (CSV/NDJSON), ghi từng dòng ra response
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public StreamingResponseBody exportAllUsers(TableExporter.Format format) {
+        return tableExporter.export(userRepository::streamAllForExport, EXPORT_COLUMNS, format);
+    }
+
     @Transactional(readOnly = true)
     @PreAuthorize("hasAuthority('ADMIN')")
     public PageResponse<UserResponse> getAllPaginated(int page, int size) {
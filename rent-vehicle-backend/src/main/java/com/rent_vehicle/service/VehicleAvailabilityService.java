@@ -0,0 +1,211 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.dto.response.ModelAvailabilityResponse;
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+import com.rent_vehicle.model.Location;
+import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.repository.projection.FleetVehicleView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tìm các mẫu xe còn ít nhất một xe trống tại một vị trí trong khoảng ngày, kèm tổng giá thuê.
+ *
+ * Danh sách xe available được giữ trong bộ nhớ (nạp lại sau khi xe/mẫu xe thay đổi hoặc sau
+ * fleet-refresh-seconds), lịch từng xe lấy từ bitmap của BookingAvailabilityIndex, nên một lượt
+ * tìm không cần query database. Khi index bị tắt thì đếm bằng một query gộp theo mẫu xe.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VehicleAvailabilityService {
+
+    private static final Comparator<ModelAvailabilityResponse> RESULT_ORDER =
+            Comparator.comparing(ModelAvailabilityResponse::getTotalPrice)
+                    .thenComparing(ModelAvailabilityResponse::getVehicleModelId);
+
+    private final VehicleRepository vehicleRepository;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final LocationService locationService;
+
+    private final AtomicLong fleetVersion = new AtomicLong();
+    private volatile Fleet fleet;
+
+    @Value("${app.booking.search.horizon-days:365}")
+    private long horizonDays;
+
+    @Value("${app.booking.search.fleet-refresh-seconds:60}")
+    private long fleetRefreshSeconds;
+
+    /**
+     * @param location Tên vị trí (không phân biệt hoa thường/dấu), để trống để tìm mọi vị trí
+     * @return Các mẫu xe còn xe trống, sắp theo tổng giá tăng dần
+     */
+    public List<ModelAvailabilityResponse> search(String location, LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        long days = ChronoUnit.DAYS.between(startDate, endDate);
+
+        Long locationId = null;
+        if (location != null && !location.isBlank()) {
+            Optional<Location> found = locationService.find(location);
+            if (found.isEmpty()) {
+                return List.of();
+            }
+            locationId = found.get().getId();
+        }
+
+        if (!bookingAvailabilityIndex.isReady()) {
+            return vehicleRepository.countFreeVehiclesByModel(locationId, startDate, endDate).stream()
+                    .map(row -> toResponse(
+                            new ModelInfo(row.getVehicleModelId(), row.getVehicleModelName(), row.getBrand(), row.getPricePerDay()),
+                            row.getAvailableVehicles(),
+                            days
+                    ))
+                    .sorted(RESULT_ORDER)
+                    .toList();
+        }
+
+        Fleet current = currentFleet();
+        List<FleetVehicle> candidates = locationId == null
+                ? current.vehicles()
+                : current.vehiclesByLocation().getOrDefault(locationId, List.of());
+
+        Map<Long, Long> freeByModel = new HashMap<>();
+        for (FleetVehicle vehicle : candidates) {
+            if (!bookingAvailabilityIndex.hasApprovedConflict(vehicle.vehicleId(), startDate, endDate)) {
+                freeByModel.merge(vehicle.vehicleModelId(), 1L, Long::sum);
+            }
+        }
+
+        return freeByModel.entrySet().stream()
+                .map(entry -> toResponse(current.models().get(entry.getKey()), entry.getValue(), days))
+                .sorted(RESULT_ORDER)
+                .toList();
+    }
+
+    /**
+     * Bỏ danh sách xe đang giữ sau khi transaction hiện tại commit; gọi khi thêm xe, đổi trạng thái
+     * xe hoặc sửa/xóa mẫu xe
+     */
+    public void invalidateFleet() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fleetVersion.incrementAndGet();
+                }
+            });
+            return;
+        }
+
+        fleetVersion.incrementAndGet();
+    }
+
+    private Fleet currentFleet() {
+        Fleet current = fleet;
+        if (isFresh(current)) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = fleet;
+            if (isFresh(current)) {
+                return current;
+            }
+
+            // Lấy version trước khi đọc database: nếu bị invalidate trong lúc nạp thì lượt sau nạp lại
+            long version = fleetVersion.get();
+            long startedAt = System.currentTimeMillis();
+            current = loadFleet(version);
+            fleet = current;
+            log.debug("Loaded {} available vehicles for availability search in {} ms",
+                    current.vehicles().size(), System.currentTimeMillis() - startedAt);
+            return current;
+        }
+    }
+
+    private boolean isFresh(Fleet current) {
+        return current != null
+                && current.version() == fleetVersion.get()
+                && System.currentTimeMillis() - current.loadedAt() < fleetRefreshSeconds * 1000;
+    }
+
+    private Fleet loadFleet(long version) {
+        List<FleetVehicle> vehicles = new ArrayList<>();
+        Map<Long, List<FleetVehicle>> vehiclesByLocation = new HashMap<>();
+        Map<Long, ModelInfo> models = new HashMap<>();
+
+        for (FleetVehicleView row : vehicleRepository.findAvailableFleet()) {
+            FleetVehicle vehicle = new FleetVehicle(row.getVehicleId(), row.getVehicleModelId());
+            vehicles.add(vehicle);
+
+            if (row.getLocationId() != null) {
+                vehiclesByLocation.computeIfAbsent(row.getLocationId(), key -> new ArrayList<>()).add(vehicle);
+            }
+
+            models.computeIfAbsent(row.getVehicleModelId(), id -> new ModelInfo(
+                    id,
+                    row.getVehicleModelName(),
+                    row.getBrand(),
+                    row.getPricePerDay()
+            ));
+        }
+
+        return new Fleet(vehicles, vehiclesByLocation, models, version, System.currentTimeMillis());
+    }
+
+    private void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        LocalDate today = LocalDate.now();
+        if (startDate.isAfter(endDate) || startDate.isBefore(today) || endDate.isAfter(today.plusDays(horizonDays))) {
+            throw new AppException(ErrorCode.INVALID_BOOKING_DATE);
+        }
+    }
+
+    private ModelAvailabilityResponse toResponse(ModelInfo model, Long availableVehicles, long days) {
+        return ModelAvailabilityResponse.builder()
+                .vehicleModelId(model.id())
+                .vehicleModelName(model.name())
+                .brand(model.brand())
+                .pricePerDay(model.pricePerDay())
+                .availableVehicles(availableVehicles)
+                .days(days)
+                // Cùng công thức với BookingService.createBooking
+                .totalPrice(model.pricePerDay().multiply(BigDecimal.valueOf(days)))
+                .build();
+    }
+
+    private record FleetVehicle(Long vehicleId, Long vehicleModelId) {
+    }
+
+    private record ModelInfo(Long id, String name, String brand, BigDecimal pricePerDay) {
+    }
+
+    private record Fleet(
+            List<FleetVehicle> vehicles,
+            Map<Long, List<FleetVehicle>> vehiclesByLocation,
+            Map<Long, ModelInfo> models,
+            long version,
+            long loadedAt
+    ) {
+    }
+}
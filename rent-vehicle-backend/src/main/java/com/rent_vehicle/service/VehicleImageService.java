@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 public class VehicleImageService {
     private final VehicleImageRepository vehicleImageRepository;
     private final VehicleModelRepository vehicleModelRepository;
+    private final CatalogCache catalogCache;
 
     // Add single image to vehicle model
     public VehicleImageResponse addImageToVehicleModel(Long vehicleModelId, String imageUrl) {
@@ -32,6 +33,7 @@ public class VehicleImageService {
                 .build();
 
         VehicleImage saved = vehicleImageRepository.save(image);
+        catalogCache.evictVehicleModel(vehicleModelId);
         return toResponse(saved);
     }
 
@@ -51,6 +53,7 @@ public class VehicleImageService {
         VehicleImage image = vehicleImageRepository.findById(imageId)
                 .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_IMAGE_NOT_FOUND));
         vehicleImageRepository.delete(image);
+        catalogCache.evictVehicleModel(image.getVehicleModel().getId());
     }
 
     // Get single image
@@ -1,44 +1,54 @@
 package com.rent_vehicle.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.rent_vehicle.dto.request.CreateVehicleModelRequest;
 import com.rent_vehicle.dto.response.VehicleModelResponse;
 import com.rent_vehicle.dto.response.PageResponse;
-import com.rent_vehicle.model.Booking;
-import com.rent_vehicle.model.Vehicle;
 import com.rent_vehicle.model.VehicleModel;
 import com.rent_vehicle.model.VehicleType;
 import com.rent_vehicle.model.VehicleImage;
 import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
-import com.rent_vehicle.repository.BookingRepository;
-import com.rent_vehicle.repository.ReviewRepository;
 import com.rent_vehicle.repository.VehicleModelRepository;
 import com.rent_vehicle.repository.VehicleTypeRepository;
 import com.rent_vehicle.repository.VehicleImageRepository;
+import com.rent_vehicle.repository.VehicleModelSpecifications;
 import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.repository.projection.VehicleModelImageView;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class VehicleModelService {
+    private static final TypeReference<VehicleModelResponse> MODEL_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<VehicleModelResponse>> MODEL_LIST_TYPE = new TypeReference<>() {};
+    private static final TypeReference<PageResponse<VehicleModelResponse>> MODEL_PAGE_TYPE = new TypeReference<>() {};
+
     private final VehicleModelRepository vehicleModelRepository;
     private final VehicleTypeRepository vehicleTypeRepository;
     private final VehicleImageRepository vehicleImageRepository;
-    private final ReviewRepository reviewRepository;
-    private final BookingRepository bookingRepository;
     private final VehicleRepository vehicleRepository;
+    private final VehicleModelStatsService vehicleModelStatsService;
+    private final CatalogCache catalogCache;
+    private final VehicleAvailabilityService vehicleAvailabilityService;
 
     @PreAuthorize("hasAuthority('ADMIN')")
     public VehicleModelResponse create(CreateVehicleModelRequest request) {
@@ -65,16 +75,9 @@ public class VehicleModelService {
         VehicleModel saved = vehicleModelRepository.save(vehicleModel);
 
         // Save images if provided
-        if (request.getImageUrls() != null && !request.getImageUrls().isEmpty()) {
-            request.getImageUrls().forEach(imageUrl -> {
-                VehicleImage image = VehicleImage.builder()
-                        .vehicleModel(saved)
-                        .imageUrl(imageUrl)
-                        .build();
-                vehicleImageRepository.save(image);
-            });
-        }
+        vehicleImageRepository.insertImageUrls(saved.getId(), request.getImageUrls());
 
+        catalogCache.evictVehicleModel(saved.getId());
         return toResponse(saved);
     }
 
@@ -103,113 +106,105 @@ public class VehicleModelService {
 
         VehicleModel updated = vehicleModelRepository.save(vehicleModel);
 
-        // Update images if provided (delete old ones and create new ones)
+        // Update images if provided (only delete removed URLs and insert new ones)
         if (request.getImageUrls() != null) {
-            vehicleImageRepository.deleteByVehicleModelId(id);
-            
-            if (!request.getImageUrls().isEmpty()) {
-                request.getImageUrls().forEach(imageUrl -> {
-                    VehicleImage image = VehicleImage.builder()
-                            .vehicleModel(updated)
-                            .imageUrl(imageUrl)
-                            .build();
-                    vehicleImageRepository.save(image);
-                });
-            }
+            replaceImages(id, request.getImageUrls());
         }
 
+        catalogCache.evictVehicleModel(id);
+        vehicleAvailabilityService.invalidateFleet();
         return toResponse(updated);
     }
 
+    /**
+     * Đồng bộ ảnh của model với danh sách URL mới mà vẫn giữ đúng thứ tự (ảnh sắp theo id).
+     * Duyệt ảnh hiện có theo id: ảnh nào khớp URL kế tiếp trong danh sách mới thì giữ, còn lại xóa;
+     * phần URL chưa khớp được thêm vào cuối. Thêm/bớt ảnh chỉ đụng tới các dòng thay đổi,
+     * chỉ khi đổi thứ tự thì các ảnh phía sau mới phải ghi lại.
+     */
+    private void replaceImages(Long vehicleModelId, List<String> imageUrls) {
+        List<VehicleImage> existing = vehicleImageRepository.findByVehicleModelId(vehicleModelId).stream()
+                .sorted(Comparator.comparing(VehicleImage::getId))
+                .toList();
+
+        int matched = 0;
+        List<Long> removedIds = new ArrayList<>();
+        for (VehicleImage image : existing) {
+            if (matched < imageUrls.size() && imageUrls.get(matched).equals(image.getImageUrl())) {
+                matched++;
+            } else {
+                removedIds.add(image.getId());
+            }
+        }
+
+        if (!removedIds.isEmpty()) {
+            vehicleImageRepository.deleteAllByIdInBatch(removedIds);
+        }
+        vehicleImageRepository.insertImageUrls(vehicleModelId, imageUrls.subList(matched, imageUrls.size()));
+    }
+
     @PreAuthorize("hasAuthority('ADMIN')")
     public void delete(Long id) {
         VehicleModel vehicleModel = vehicleModelRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
         vehicleModelRepository.delete(vehicleModel);
+        catalogCache.evictVehicleModel(id);
+        vehicleAvailabilityService.invalidateFleet();
     }
 
     @Transactional(readOnly = true)
     public VehicleModelResponse getById(Long id) {
-        VehicleModel vehicleModel = vehicleModelRepository.findById(id)
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
-        return toResponse(vehicleModel);
+        return catalogCache.get(CatalogCache.VEHICLE_MODELS, String.valueOf(id), MODEL_TYPE, () -> {
+            VehicleModel vehicleModel = vehicleModelRepository.findById(id)
+                    .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
+            return toResponse(vehicleModel);
+        });
     }
 
     @Transactional(readOnly = true)
     public List<VehicleModelResponse> getAll() {
-        return vehicleModelRepository.findAll().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return toResponses(vehicleModelRepository.findAll());
     }
 
     @Transactional(readOnly = true)
     public List<VehicleModelResponse> getAllOrSearch(String keyword, Long vehicleTypeId, String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice) {
-        List<VehicleModel> models = vehicleModelRepository.findAll();
-        
-        // Apply filters
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            models = models.stream()
-                    .filter(m -> m.getName().toLowerCase().contains(keyword.toLowerCase()) || 
-                                 m.getBrand().toLowerCase().contains(keyword.toLowerCase()))
-                    .collect(Collectors.toList());
-        }
-        
-        if (vehicleTypeId != null) {
-            models = models.stream()
-                    .filter(m -> m.getVehicleType().getId().equals(vehicleTypeId))
-                    .collect(Collectors.toList());
+        // Chỉ cache danh sách không lọc; tổ hợp bộ lọc quá nhiều để cache hiệu quả
+        if (isUnfiltered(keyword, vehicleTypeId, brand, minPrice, maxPrice)) {
+            return catalogCache.get(CatalogCache.VEHICLE_MODEL_LISTS, "all", MODEL_LIST_TYPE,
+                    () -> toResponses(vehicleModelRepository.findAll(Sort.by("id"))));
         }
-        
-        if (brand != null && !brand.trim().isEmpty()) {
-            models = models.stream()
-                    .filter(m -> m.getBrand().equalsIgnoreCase(brand))
-                    .collect(Collectors.toList());
-        }
-        
-        if (minPrice != null) {
-            models = models.stream()
-                    .filter(m -> m.getPricePerDay().compareTo(minPrice) >= 0)
-                    .collect(Collectors.toList());
-        }
-        
-        if (maxPrice != null) {
-            models = models.stream()
-                    .filter(m -> m.getPricePerDay().compareTo(maxPrice) <= 0)
-                    .collect(Collectors.toList());
-        }
-        
-        return models.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+
+        List<VehicleModel> models = vehicleModelRepository.findAll(
+                VehicleModelSpecifications.catalogFilter(keyword, vehicleTypeId, brand, minPrice, maxPrice),
+                Sort.by("id")
+        );
+        return toResponses(models);
     }
 
     @Transactional(readOnly = true)
     public PageResponse<VehicleModelResponse> getAllOrSearchPaginated(String keyword, Long vehicleTypeId, String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice, int page, int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<VehicleModel> pageData;
-        
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            pageData = vehicleModelRepository.findByNameLikeIgnoreCaseOrBrandLikeIgnoreCase(keyword, keyword, pageable);
-        } else {
-            pageData = vehicleModelRepository.findAll(pageable);
+        String key = catalogCache.pageKey(page, size);
+        if (key != null && isUnfiltered(keyword, vehicleTypeId, brand, minPrice, maxPrice)) {
+            return catalogCache.get(CatalogCache.VEHICLE_MODEL_LISTS, key, MODEL_PAGE_TYPE,
+                    () -> searchPaginated(keyword, vehicleTypeId, brand, minPrice, maxPrice, page, size));
         }
-        
-        List<VehicleModel> filteredModels = pageData.getContent().stream()
-                .filter(m -> vehicleTypeId == null || m.getVehicleType().getId().equals(vehicleTypeId))
-                .filter(m -> brand == null || brand.trim().isEmpty() || m.getBrand().equalsIgnoreCase(brand))
-                .filter(m -> minPrice == null || m.getPricePerDay().compareTo(minPrice) >= 0)
-                .filter(m -> maxPrice == null || m.getPricePerDay().compareTo(maxPrice) <= 0)
-                .collect(Collectors.toList());
-        
-        List<VehicleModelResponse> content = filteredModels.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return searchPaginated(keyword, vehicleTypeId, brand, minPrice, maxPrice, page, size);
+    }
+
+    private PageResponse<VehicleModelResponse> searchPaginated(String keyword, Long vehicleTypeId, String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice, int page, int size) {
+        Pageable pageable = PageRequest.of(page - 1, size, Sort.by("id"));
+        Page<VehicleModel> pageData = vehicleModelRepository.findAll(
+                VehicleModelSpecifications.catalogFilter(keyword, vehicleTypeId, brand, minPrice, maxPrice),
+                pageable
+        );
+
+        List<VehicleModelResponse> content = toResponses(pageData.getContent());
         
         return PageResponse.<VehicleModelResponse>builder()
                 .currentPage(page)
-                .pageSize(size)
-                .totalPages((int) Math.ceil((double) filteredModels.size() / size))
-                .totalElements((long) filteredModels.size())
+                .pageSize(pageData.getSize())
+                .totalPages(pageData.getTotalPages())
+                .totalElements(pageData.getTotalElements())
                 .data(content)
                 .build();
     }
@@ -219,9 +214,7 @@ public class VehicleModelService {
         Pageable pageable = PageRequest.of(page - 1, size);
         Page<VehicleModel> pageData = vehicleModelRepository.findAll(pageable);
         
-        List<VehicleModelResponse> content = pageData.getContent().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        List<VehicleModelResponse> content = toResponses(pageData.getContent());
         
         return PageResponse.<VehicleModelResponse>builder()
                 .currentPage(page)
@@ -234,34 +227,73 @@ public class VehicleModelService {
 
     @Transactional(readOnly = true)
     public List<VehicleModelResponse> getByVehicleType(Long vehicleTypeId) {
-        vehicleTypeRepository.findById(vehicleTypeId)
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_TYPE_NOT_FOUND));
+        return catalogCache.get(CatalogCache.VEHICLE_MODEL_LISTS, "type:" + vehicleTypeId, MODEL_LIST_TYPE, () -> {
+            vehicleTypeRepository.findById(vehicleTypeId)
+                    .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_TYPE_NOT_FOUND));
 
-        return vehicleModelRepository.findByVehicleTypeId(vehicleTypeId).stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+            return toResponses(vehicleModelRepository.findByVehicleTypeId(vehicleTypeId));
+        });
     }
 
     @Transactional(readOnly = true)
     public List<VehicleModelResponse> search(String keyword) {
-        return vehicleModelRepository.searchByNameOrBrand(keyword).stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return toResponses(vehicleModelRepository.searchByNameOrBrand(keyword));
+    }
+
+    private boolean isUnfiltered(String keyword, Long vehicleTypeId, String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice) {
+        return (keyword == null || keyword.trim().isEmpty())
+                && vehicleTypeId == null
+                && (brand == null || brand.trim().isEmpty())
+                && minPrice == null
+                && maxPrice == null;
     }
 
     private VehicleModelResponse toResponse(VehicleModel vehicleModel) {
-        Double averageRating = reviewRepository.getAverageRatingByVehicleModelId(vehicleModel.getId());
-        Long reviewCount = reviewRepository.countByBookingVehicleModelId(vehicleModel.getId());
-        Long totalTrips = bookingRepository.countByVehicleModelIdAndStatus(
-                vehicleModel.getId(), 
-                Booking.BookingStatus.completed
-        );
-        
-        // Get images
-        List<String> images = vehicleImageRepository.findByVehicleModelId(vehicleModel.getId())
-                .stream()
-                .map(VehicleImage::getImageUrl)
+        return toResponses(List.of(vehicleModel)).get(0);
+    }
+
+    /**
+     * Map a batch of models to responses. Images and locations are loaded with one grouped
+     * query each for the whole batch instead of one query per model.
+     */
+    private List<VehicleModelResponse> toResponses(List<VehicleModel> vehicleModels) {
+        if (vehicleModels.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogStats stats = loadCatalogStats(vehicleModels.stream()
+                .map(VehicleModel::getId)
+                .collect(Collectors.toSet()));
+
+        return vehicleModels.stream()
+                .map(vehicleModel -> toResponse(vehicleModel, stats))
                 .collect(Collectors.toList());
+    }
+
+    private CatalogStats loadCatalogStats(Set<Long> vehicleModelIds) {
+        Map<Long, List<String>> images = vehicleImageRepository
+                .findImageUrlsByVehicleModelIds(vehicleModelIds).stream()
+                .collect(Collectors.groupingBy(
+                        VehicleModelImageView::getVehicleModelId,
+                        Collectors.mapping(VehicleModelImageView::getImageUrl, Collectors.toList())
+                ));
+
+        // Keep the first vehicle location per model, same as iterating the model's vehicles
+        Map<Long, String> locations = new HashMap<>();
+        vehicleRepository.findLocationsByVehicleModelIds(vehicleModelIds)
+                .forEach(view -> locations.putIfAbsent(view.getVehicleModelId(), view.getLocation()));
+
+        return new CatalogStats(images, locations);
+    }
+
+    private VehicleModelResponse toResponse(VehicleModel vehicleModel, CatalogStats stats) {
+        // Rating and trip counts come from the aggregates maintained on the model row
+        Double averageRating = vehicleModelStatsService.getAverageRating(vehicleModel);
+        Long reviewCount = vehicleModelStatsService.getReviewCount(vehicleModel);
+        Long totalTrips = vehicleModelStatsService.getCompletedTripCount(vehicleModel);
+
+        // Get images
+        List<String> images = stats.images().getOrDefault(vehicleModel.getId(), new ArrayList<>());
         
         // Convert features string to list
         List<String> features = vehicleModel.getFeatures() != null && !vehicleModel.getFeatures().isEmpty()
@@ -279,7 +311,7 @@ public class VehicleModelService {
                 .seats(vehicleModel.getSeats())
                 .transmission(vehicleModel.getTransmission())
                 .fuel(vehicleModel.getFuel())
-                .location(resolveModelLocation(vehicleModel.getId()))
+                .location(stats.locations().get(vehicleModel.getId()))
                 .features(features)
                 .images(images)
                 .createdAt(vehicleModel.getCreatedAt())
@@ -289,11 +321,9 @@ public class VehicleModelService {
                 .build();
     }
 
-    private String resolveModelLocation(Long vehicleModelId) {
-        return vehicleRepository.findByVehicleModelId(vehicleModelId).stream()
-                .map(Vehicle::getLocation)
-                .filter(location -> location != null && !location.isBlank())
-                .findFirst()
-                .orElse(null);
+    private record CatalogStats(
+            Map<Long, List<String>> images,
+            Map<Long, String> locations
+    ) {
     }
 }
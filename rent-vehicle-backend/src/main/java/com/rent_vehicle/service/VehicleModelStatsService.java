@@ -0,0 +1,147 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.model.Booking;
+import com.rent_vehicle.model.VehicleModel;
+import com.rent_vehicle.repository.VehicleModelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Duy trì các aggregate (tổng điểm, số review, số chuyến hoàn thành) trên vehicle_models
+ * để trang catalog chỉ cần đọc một dòng thay vì join reviews/bookings mỗi lần render.
+ */
+@Service
+@Transactional
+@Slf4j
+public class VehicleModelStatsService {
+
+    private static final String RECONCILE_LOCK_KEY = "vehicle-model-stats:reconcile-lock";
+
+    // KEYS: lockKey | ARGV: token
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final VehicleModelRepository vehicleModelRepository;
+    private final CatalogCache catalogCache;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TransactionTemplate reconcileTransaction;
+
+    @Value("${app.catalog.aggregate-reconcile-lock-ttl-seconds:1800}")
+    private long reconcileLockTtlSeconds;
+
+    public VehicleModelStatsService(
+            VehicleModelRepository vehicleModelRepository,
+            CatalogCache catalogCache,
+            RedisTemplate<String, String> redisTemplate,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.vehicleModelRepository = vehicleModelRepository;
+        this.catalogCache = catalogCache;
+        this.redisTemplate = redisTemplate;
+        this.reconcileTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    public void recordReviewCreated(Long vehicleModelId, int rating) {
+        vehicleModelRepository.adjustRatingAggregate(vehicleModelId, rating, 1);
+        catalogCache.evictVehicleModel(vehicleModelId);
+    }
+
+    public void recordReviewUpdated(Long vehicleModelId, int oldRating, int newRating) {
+        if (oldRating != newRating) {
+            vehicleModelRepository.adjustRatingAggregate(vehicleModelId, newRating - oldRating, 0);
+            catalogCache.evictVehicleModel(vehicleModelId);
+        }
+    }
+
+    public void recordReviewDeleted(Long vehicleModelId, int rating) {
+        vehicleModelRepository.adjustRatingAggregate(vehicleModelId, -rating, -1);
+        catalogCache.evictVehicleModel(vehicleModelId);
+    }
+
+    /**
+     * Gọi khi booking chuyển sang completed (chỉ một lần cho mỗi booking)
+     */
+    public void recordTripCompleted(Booking booking) {
+        vehicleModelRepository.adjustCompletedTripCount(booking.getVehicleModel().getId(), 1);
+        catalogCache.evictVehicleModel(booking.getVehicleModel().getId());
+    }
+
+    /**
+     * Tính lại toàn bộ aggregate từ reviews/bookings để sửa sai lệch (ví dụ dữ liệu sửa tay trong DB).
+     * Mỗi lượt chỉ chạy trên một instance nhờ khóa Redis; khóa được nhả sau khi transaction commit.
+     */
+    @Scheduled(cron = "${app.catalog.aggregate-reconcile-cron:0 30 3 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconcile() {
+        String token = UUID.randomUUID().toString();
+        if (!acquireReconcileLock(token)) {
+            return;
+        }
+
+        try {
+            long startedAt = System.currentTimeMillis();
+            Integer updated = reconcileTransaction.execute(status -> vehicleModelRepository.rebuildAggregates());
+            catalogCache.evictRegion(CatalogCache.VEHICLE_MODELS);
+            catalogCache.evictRegion(CatalogCache.VEHICLE_MODEL_LISTS);
+            log.info("Reconciled rating/trip aggregates for {} vehicle models in {} ms",
+                    updated, System.currentTimeMillis() - startedAt);
+        } finally {
+            releaseReconcileLock(token);
+        }
+    }
+
+    /**
+     * Điểm trung bình từ aggregate, null nếu chưa có review (giống AVG trên tập rỗng)
+     */
+    public Double getAverageRating(VehicleModel vehicleModel) {
+        long count = valueOrZero(vehicleModel.getRatingCount());
+        return count > 0 ? (double) valueOrZero(vehicleModel.getRatingSum()) / count : null;
+    }
+
+    public long getReviewCount(VehicleModel vehicleModel) {
+        return valueOrZero(vehicleModel.getRatingCount());
+    }
+
+    public long getCompletedTripCount(VehicleModel vehicleModel) {
+        return valueOrZero(vehicleModel.getCompletedTripCount());
+    }
+
+    private boolean acquireReconcileLock(String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(RECONCILE_LOCK_KEY, token, Duration.ofSeconds(reconcileLockTtlSeconds)));
+        } catch (Exception ex) {
+            log.warn("Skipping aggregate reconcile, could not acquire Redis lock: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseReconcileLock(String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(RECONCILE_LOCK_KEY), token);
+        } catch (Exception ex) {
+            // Khóa tự hết hạn sau aggregate-reconcile-lock-ttl-seconds
+            log.warn("Failed to release aggregate reconcile lock: {}", ex.getMessage());
+        }
+    }
+
+    private long valueOrZero(Long value) {
+        return value != null ? value : 0L;
+    }
+}
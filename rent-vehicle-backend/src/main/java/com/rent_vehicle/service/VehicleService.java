@@ -3,12 +3,15 @@ package com.rent_vehicle.service;
 import com.rent_vehicle.dto.request.CreateVehicleRequest;
 import com.rent_vehicle.dto.response.VehicleResponse;
 import com.rent_vehicle.dto.response.PageResponse;
+import com.rent_vehicle.model.Location;
 import com.rent_vehicle.model.Vehicle;
 import com.rent_vehicle.model.VehicleModel;
 import com.rent_vehicle.exception.AppException;
 import com.rent_vehicle.exception.ErrorCode;
 import com.rent_vehicle.repository.VehicleModelRepository;
 import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.repository.projection.VehicleExportRow;
+import com.rent_vehicle.util.LocationNormalizer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,6 +19,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,16 +28,30 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class VehicleService {
+
+    private static final List<TableExporter.Column<VehicleExportRow>> EXPORT_COLUMNS = List.of(
+            TableExporter.column("id", VehicleExportRow::getId),
+            TableExporter.column("vehicleModelId", VehicleExportRow::getVehicleModelId),
+            TableExporter.column("vehicleModelName", VehicleExportRow::getVehicleModelName),
+            TableExporter.column("licensePlate", VehicleExportRow::getLicensePlate),
+            TableExporter.column("location", VehicleExportRow::getLocation),
+            TableExporter.column("status", VehicleExportRow::getStatus),
+            TableExporter.column("createdAt", VehicleExportRow::getCreatedAt)
+    );
+
     private final VehicleRepository vehicleRepository;
     private final VehicleModelRepository vehicleModelRepository;
+    private final CatalogCache catalogCache;
+    private final VehicleAvailabilityService vehicleAvailabilityService;
+    private final TableExporter tableExporter;
+    private final LocationService locationService;
 
     @PreAuthorize("hasAuthority('ADMIN')")
     public VehicleResponse create(CreateVehicleRequest request) {
         VehicleModel vehicleModel = vehicleModelRepository.findById(request.getVehicleModelId())
                 .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_MODEL_NOT_FOUND));
 
-        String normalizedLocation = normalizeLocation(request.getLocation());
-        if (normalizedLocation == null) {
+        if (LocationNormalizer.fold(request.getLocation()) == null) {
             throw new AppException(ErrorCode.INVALID_REQUEST);
         }
 
@@ -42,14 +60,21 @@ public class VehicleService {
             throw new AppException(ErrorCode.INVALID_VEHICLE_LICENSE);
         }
 
+        // "ha noi" và "Hà Nội" dùng chung một vị trí, tên hiển thị lấy theo vị trí đã có
+        Location location = locationService.resolve(request.getLocation());
+
         Vehicle vehicle = Vehicle.builder()
                 .vehicleModel(vehicleModel)
                 .licensePlate(request.getLicensePlate())
-                .location(normalizedLocation)
+                .location(location.getName())
+                .locationRef(location)
                 .status(Vehicle.VehicleStatus.available)
                 .build();
 
         Vehicle saved = vehicleRepository.save(vehicle);
+        // Location của model được lấy từ xe, nên response model đã cache có thể thay đổi
+        catalogCache.evictVehicleModel(vehicleModel.getId());
+        vehicleAvailabilityService.invalidateFleet();
         return toResponse(saved);
     }
 
@@ -60,6 +85,7 @@ public class VehicleService {
 
         Vehicle.VehicleStatus vehicleStatus = Vehicle.VehicleStatus.valueOf(status);
         vehicle.setStatus(vehicleStatus);
+        vehicleAvailabilityService.invalidateFleet();
         return toResponse(vehicleRepository.save(vehicle));
     }
 
@@ -77,6 +103,14 @@ public class VehicleService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Export toàn bộ xe (CSV/NDJSON), ghi từng dòng ra response
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public StreamingResponseBody exportAll(TableExporter.Format format) {
+        return tableExporter.export(vehicleRepository::streamAllForExport, EXPORT_COLUMNS, format);
+    }
+
     @Transactional(readOnly = true)
     public List<VehicleResponse> getAllOrSearch(String keyword) {
         if (keyword != null && !keyword.trim().isEmpty()) {
@@ -161,13 +195,4 @@ public class VehicleService {
                 .createdAt(vehicle.getCreatedAt())
                 .build();
     }
-
-    private String normalizeLocation(String location) {
-        if (location == null) {
-            return null;
-        }
-
-        String trimmed = location.trim();
-        return trimmed.isEmpty() ? null : trimmed;
-    }
 }
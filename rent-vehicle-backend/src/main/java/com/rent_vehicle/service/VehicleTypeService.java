@@ -1,5 +1,6 @@
 package com.rent_vehicle.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.rent_vehicle.dto.request.CreateVehicleTypeRequest;
 import com.rent_vehicle.dto.response.VehicleTypeResponse;
 import com.rent_vehicle.dto.response.PageResponse;
@@ -22,7 +23,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class VehicleTypeService {
+    private static final TypeReference<VehicleTypeResponse> TYPE_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<VehicleTypeResponse>> TYPE_LIST_TYPE = new TypeReference<>() {};
+    private static final TypeReference<PageResponse<VehicleTypeResponse>> TYPE_PAGE_TYPE = new TypeReference<>() {};
+
     private final VehicleTypeRepository vehicleTypeRepository;
+    private final CatalogCache catalogCache;
 
     @PreAuthorize("hasAuthority('ADMIN')")
     public VehicleTypeResponse create(CreateVehicleTypeRequest request) {
@@ -37,6 +43,7 @@ public class VehicleTypeService {
                 .build();
 
         VehicleType saved = vehicleTypeRepository.save(vehicleType);
+        catalogCache.evictRegion(CatalogCache.VEHICLE_TYPES);
         return toResponse(saved);
     }
 
@@ -53,7 +60,9 @@ public class VehicleTypeService {
 
         vehicleType.setName(request.getName());
         vehicleType.setDescription(request.getDescription());
-        return toResponse(vehicleTypeRepository.save(vehicleType));
+        VehicleType saved = vehicleTypeRepository.save(vehicleType);
+        evictTypeAndModels();
+        return toResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -61,24 +70,36 @@ public class VehicleTypeService {
         VehicleType vehicleType = vehicleTypeRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_TYPE_NOT_FOUND));
         vehicleTypeRepository.delete(vehicleType);
+        evictTypeAndModels();
     }
 
     @Transactional(readOnly = true)
     public VehicleTypeResponse getById(Long id) {
-        VehicleType vehicleType = vehicleTypeRepository.findById(id)
-                .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_TYPE_NOT_FOUND));
-        return toResponse(vehicleType);
+        return catalogCache.get(CatalogCache.VEHICLE_TYPES, "id:" + id, TYPE_TYPE, () -> {
+            VehicleType vehicleType = vehicleTypeRepository.findById(id)
+                    .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_TYPE_NOT_FOUND));
+            return toResponse(vehicleType);
+        });
     }
 
     @Transactional(readOnly = true)
     public List<VehicleTypeResponse> getAll() {
-        return vehicleTypeRepository.findAll().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return catalogCache.get(CatalogCache.VEHICLE_TYPES, "all", TYPE_LIST_TYPE, () ->
+                vehicleTypeRepository.findAll().stream()
+                        .map(this::toResponse)
+                        .collect(Collectors.toList()));
     }
 
     @Transactional(readOnly = true)
     public PageResponse<VehicleTypeResponse> getAllPaginated(int page, int size) {
+        String key = catalogCache.pageKey(page, size);
+        if (key == null) {
+            return loadPage(page, size);
+        }
+        return catalogCache.get(CatalogCache.VEHICLE_TYPES, key, TYPE_PAGE_TYPE, () -> loadPage(page, size));
+    }
+
+    private PageResponse<VehicleTypeResponse> loadPage(int page, int size) {
         Pageable pageable = PageRequest.of(page - 1, size);
         Page<VehicleType> pageData = vehicleTypeRepository.findAll(pageable);
         
@@ -102,6 +123,13 @@ public class VehicleTypeService {
                 .collect(Collectors.toList());
     }
 
+    // Tên loại xe nằm trong response của vehicle model nên phải xóa cả cache model
+    private void evictTypeAndModels() {
+        catalogCache.evictRegion(CatalogCache.VEHICLE_TYPES);
+        catalogCache.evictRegion(CatalogCache.VEHICLE_MODELS);
+        catalogCache.evictRegion(CatalogCache.VEHICLE_MODEL_LISTS);
+    }
+
     private VehicleTypeResponse toResponse(VehicleType vehicleType) {
         return VehicleTypeResponse.builder()
                 .id(vehicleType.getId())
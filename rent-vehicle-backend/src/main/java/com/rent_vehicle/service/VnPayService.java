@@ -38,6 +38,8 @@ public class VnPayService {
 
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final VehicleModelStatsService vehicleModelStatsService;
 
     @Value("${app.vnpay.tmn-code:}")
     private String tmnCode;
@@ -81,12 +83,14 @@ public class VnPayService {
             throw new AppException(ErrorCode.PAYMENT_ALREADY_PROCESSED);
         }
 
+        // Chỉ dùng lại payment còn hạn; payment quá hạn sẽ được LifecycleSweeper chuyển sang failed
         Payment pendingPayment = paymentRepository
                 .findTopByBookingIdAndMethodAndStatusOrderByCreatedAtDesc(
                         bookingId,
                         Payment.PaymentMethod.vnpay,
                         Payment.PaymentStatus.pending
                 )
+                .filter(payment -> paymentExpiresAt(payment).isAfter(LocalDateTime.now().plusMinutes(1)))
                 .orElseGet(() -> paymentRepository.save(
                         Payment.builder()
                                 .booking(booking)
@@ -158,7 +162,8 @@ public class VnPayService {
         Booking booking = payment.getBooking();
         if (booking.getStatus() == Booking.BookingStatus.approved) {
             booking.setStatus(Booking.BookingStatus.completed);
-            bookingRepository.save(booking);
+            bookingAvailabilityIndex.track(bookingRepository.save(booking));
+            vehicleModelStatsService.recordTripCompleted(booking);
         }
     }
 
@@ -169,6 +174,11 @@ public class VnPayService {
         }
     }
 
+    private LocalDateTime paymentExpiresAt(Payment payment) {
+        LocalDateTime createdAt = payment.getCreatedAt() != null ? payment.getCreatedAt() : LocalDateTime.now();
+        return createdAt.plusMinutes(Math.max(txnTimeoutMinutes, 1));
+    }
+
     private Booking.PaymentMethod resolveBookingPaymentMethod(Booking booking) {
         return booking.getPaymentMethod() != null ? booking.getPaymentMethod() : Booking.PaymentMethod.bank;
     }
@@ -176,7 +186,8 @@ public class VnPayService {
     private String buildPaymentUrl(Booking booking, Payment payment, String clientIp) {
         LocalDateTime now = LocalDateTime.now();
         String createDate = formatVnPayDate(now);
-        String expireDate = formatVnPayDate(now.plusMinutes(Math.max(txnTimeoutMinutes, 1)));
+        // Hạn của URL tính theo lúc tạo payment, để URL tạo lại không kéo dài payment quá hạn
+        String expireDate = formatVnPayDate(paymentExpiresAt(payment));
 
         String normalizedTmnCode = normalizeConfigValue(tmnCode);
         String normalizedReturnUrl = normalizeConfigValue(returnUrl);
@@ -26,6 +26,10 @@ public class JwtUtil {
     @Value("${jwt.refresh-token-duration:604800}")
     private long refreshTokenDuration; // 7 days
 
+    // MACSigner/MACVerifier không giữ trạng thái giữa các lần gọi nên dùng chung được giữa các thread
+    private volatile MACSigner macSigner;
+    private volatile MACVerifier macVerifier;
+
     /**
      * Generate Access Token với JTI để có thể blacklist
      */
@@ -46,7 +50,7 @@ public class JwtUtil {
                 claims
         );
 
-        signedJWT.sign(new MACSigner(signerKey.getBytes()));
+        signedJWT.sign(signer());
         return signedJWT.serialize();
     }
 
@@ -69,7 +73,7 @@ public class JwtUtil {
                 claims
         );
 
-        signedJWT.sign(new MACSigner(signerKey.getBytes()));
+        signedJWT.sign(signer());
         return signedJWT.serialize();
     }
 
@@ -85,7 +89,9 @@ public class JwtUtil {
     public boolean validateToken(String token) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
-            signedJWT.verify(new MACVerifier(signerKey.getBytes()));
+            if (!signedJWT.verify(verifier())) {
+                return false;
+            }
             
             Date expirationTime = signedJWT.getJWTClaimsSet().getExpirationTime();
             return expirationTime.after(new Date());
@@ -180,6 +186,24 @@ public class JwtUtil {
         }
     }
 
+    private MACSigner signer() throws JOSEException {
+        MACSigner signer = macSigner;
+        if (signer == null) {
+            signer = new MACSigner(signerKey.getBytes());
+            macSigner = signer;
+        }
+        return signer;
+    }
+
+    private MACVerifier verifier() throws JOSEException {
+        MACVerifier verifier = macVerifier;
+        if (verifier == null) {
+            verifier = new MACVerifier(signerKey.getBytes());
+            macVerifier = verifier;
+        }
+        return verifier;
+    }
+
     public long getAccessTokenDuration() {
         return accessTokenDuration;
     }
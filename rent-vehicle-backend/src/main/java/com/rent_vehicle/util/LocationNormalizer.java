@@ -0,0 +1,60 @@
+package com.rent_vehicle.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa tên vị trí để so khớp: "TP. Hồ Chí Minh", "Thành phố Hồ Chí Minh" và "ho  chi minh"
+ * cho cùng một khóa "ho chi minh".
+ */
+public final class LocationNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Tiền tố hành chính, bỏ khi so khớp (chỉ khi còn tên phía sau)
+    private static final Pattern ADMINISTRATIVE_PREFIX = Pattern.compile("^(thanh pho|tp|tinh) (?=\\S)");
+
+    private LocationNormalizer() {
+    }
+
+    /**
+     * Khóa tra cứu: bỏ dấu (kể cả đ/Đ, không tách được bằng NFD), chữ thường,
+     * dấu câu thành khoảng trắng, gộp khoảng trắng, bỏ tiền tố "thành phố"/"TP."/"tỉnh"
+     * @return null nếu tên rỗng
+     */
+    public static String fold(String location) {
+        String name = displayName(location);
+        if (name == null) {
+            return null;
+        }
+
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD);
+        folded = COMBINING_MARKS.matcher(folded).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        folded = SEPARATORS.matcher(folded).replaceAll(" ").trim();
+        folded = ADMINISTRATIVE_PREFIX.matcher(folded).replaceFirst("");
+        return folded.isEmpty() ? null : folded;
+    }
+
+    /**
+     * Tên có chữ cái ngoài ASCII, tức là có dấu tiếng Việt
+     */
+    public static boolean hasDiacritics(String location) {
+        return location != null && location.chars().anyMatch(c -> c > 127 && Character.isLetter(c));
+    }
+
+    /**
+     * Tên hiển thị: giữ dấu, chỉ bỏ khoảng trắng thừa
+     * @return null nếu tên rỗng
+     */
+    public static String displayName(String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        return WHITESPACE.matcher(Normalizer.normalize(location.trim(), Normalizer.Form.NFC)).replaceAll(" ");
+    }
+}
@@ -0,0 +1,45 @@
+package com.rent_vehicle.util;
+
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Vị trí trong danh sách sắp theo (createdAt DESC, id DESC), mã hóa thành chuỗi opaque cho client.
+ *
+ * Trang đầu dùng FIRST (mốc lớn hơn mọi bản ghi) để query luôn có dạng
+ * "createdAt < ? OR (createdAt = ? AND id < ?)" và dùng được index (created_at, id).
+ */
+public record PageCursor(LocalDateTime createdAt, Long id) {
+
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            if (separator <= 0) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            return new PageCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,143 @@
+package com.rent_vehicle.repository;
+
+import com.rent_vehicle.model.Booking;
+import com.rent_vehicle.model.User;
+import com.rent_vehicle.model.Vehicle;
+import com.rent_vehicle.model.VehicleModel;
+import com.rent_vehicle.model.VehicleType;
+import com.rent_vehicle.repository.projection.BookingListView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Danh sách booking phải được nạp bằng đúng một query (cộng một COUNT với phân trang offset),
+ * không phát sinh query theo từng dòng cho user, model hay xe
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingRepositoryStatementCountTest {
+
+    private static final int BOOKINGS = 30;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        VehicleType type = entityManager.persist(VehicleType.builder().name("Sedan").build());
+        VehicleModel model = entityManager.persist(VehicleModel.builder()
+                .name("Vios")
+                .brand("Toyota")
+                .vehicleType(type)
+                .pricePerDay(BigDecimal.valueOf(500_000))
+                .seats(5)
+                .transmission("automatic")
+                .fuel("gasoline")
+                .build());
+        Vehicle vehicle = entityManager.persist(Vehicle.builder()
+                .vehicleModel(model)
+                .licensePlate("30A-00001")
+                .status(Vehicle.VehicleStatus.available)
+                .build());
+        user = entityManager.persist(User.builder()
+                .fullName("Nguyen Van A")
+                .email("a@example.com")
+                .role(User.Role.USER)
+                .status(User.Status.active)
+                .build());
+
+        LocalDate start = LocalDate.now().plusDays(1);
+        for (int i = 0; i < BOOKINGS; i++) {
+            entityManager.persist(Booking.builder()
+                    .user(user)
+                    .vehicleModel(model)
+                    // Một nửa booking chưa gán xe để phủ cả LEFT JOIN
+                    .vehicle(i % 2 == 0 ? vehicle : null)
+                    .startDate(start.plusDays(i))
+                    .endDate(start.plusDays(i + 1))
+                    .totalPrice(BigDecimal.valueOf(500_000))
+                    .status(Booking.BookingStatus.pending)
+                    .paymentMethod(Booking.PaymentMethod.cash)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void filterBookingsLoadsPageAndCountInTwoStatements() {
+        Page<BookingListView> page = bookingRepository.filterBookings(
+                null, null, null, null, PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        touchAll(page.getContent());
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(BOOKINGS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void filterUserBookingsLoadsPageAndCountInTwoStatements() {
+        Page<BookingListView> page = bookingRepository.filterUserBookings(
+                user.getId(), null, null, null, PageRequest.of(0, PAGE_SIZE));
+
+        touchAll(page.getContent());
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(BOOKINGS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void filterBookingsAfterLoadsPageInOneStatement() {
+        List<BookingListView> rows = bookingRepository.filterBookingsAfter(
+                null, null, null, null,
+                LocalDateTime.now().plusDays(1), Long.MAX_VALUE,
+                PageRequest.of(0, PAGE_SIZE));
+
+        touchAll(rows);
+        assertThat(rows).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    /**
+     * Đọc mọi cột mà BookingService.toResponse dùng, để lazy load (nếu có) lộ ra trong số statement
+     */
+    private static void touchAll(List<BookingListView> rows) {
+        for (BookingListView row : rows) {
+            assertThat(row.getUserEmail()).isNotNull();
+            assertThat(row.getVehicleModelName()).isNotNull();
+            row.getVehicleId();
+            row.getVehicleLicensePlate();
+            row.getVehicleLocation();
+            row.getPaymentMethod();
+            row.getTotalPrice();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.rent_vehicle.repository;
+
+import com.rent_vehicle.model.Payment;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Các index composite của những query nóng phải được tạo với đúng thứ tự cột,
+ * và SQL mà Hibernate sinh ra cho các query đó phải được H2 lập kế hoạch qua index
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.rent_vehicle.repository.QueryIndexUsageTest$CapturingStatementInspector")
+class QueryIndexUsageTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void hotQueryIndexesExistWithExpectedColumnOrder() {
+        assertThat(indexColumns("bookings", "idx_bookings_vehicle_status_dates"))
+                .containsExactly("vehicle_id", "status", "start_date", "end_date");
+        assertThat(indexColumns("bookings", "idx_bookings_model_status_dates"))
+                .containsExactly("vehicle_model_id", "status", "start_date", "end_date");
+        assertThat(indexColumns("bookings", "idx_bookings_status_created_id"))
+                .containsExactly("status", "created_at", "id");
+        assertThat(indexColumns("bookings", "idx_bookings_created_id"))
+                .containsExactly("created_at", "id");
+        assertThat(indexColumns("bookings", "idx_bookings_user_created_id"))
+                .containsExactly("user_id", "created_at", "id");
+        assertThat(indexColumns("vehicles", "idx_vehicles_model_status_location_id"))
+                .containsExactly("vehicle_model_id", "status", "location_id");
+        assertThat(indexColumns("payments", "idx_payments_status_created"))
+                .containsExactly("status", "created_at");
+        assertThat(indexColumns("outbox_events", "idx_outbox_events_status_next_attempt"))
+                .containsExactly("status", "next_attempt_at");
+    }
+
+    @Test
+    void findFreeSlotsUsesVehicleAndBookingIndexes() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        vehicleRepository.findFreeSlots(1L, start, start.plusDays(2));
+
+        assertThat(explainLastStatement())
+                .contains("idx_vehicles_model_status_location_id")
+                .contains("idx_bookings_vehicle_status_dates");
+    }
+
+    @Test
+    void filterBookingsAfterUsesCreatedAtIndex() {
+        bookingRepository.filterBookingsAfter(null, null, null, null,
+                LocalDateTime.now(), Long.MAX_VALUE, PageRequest.of(0, 20));
+
+        assertThat(explainLastStatement()).contains("idx_bookings_created_id");
+    }
+
+    @Test
+    void lockExpiredPendingUsesStatusCreatedIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.lockExpiredPending(now, now.toLocalDate(), LocalDateTime.MIN.withYear(1970), 0L,
+                PageRequest.of(0, 100));
+        assertThat(explainLastStatement()).contains("idx_bookings_status_created_id");
+
+        paymentRepository.lockExpiredPending(Payment.PaymentMethod.vnpay, now, LocalDateTime.MIN.withYear(1970), 0L,
+                PageRequest.of(0, 100));
+        assertThat(explainLastStatement()).contains("idx_payments_status_created");
+    }
+
+    private List<String> indexColumns(String table, String index) {
+        return jdbcTemplate.queryForList("""
+                SELECT LOWER(COLUMN_NAME) FROM INFORMATION_SCHEMA.INDEX_COLUMNS
+                WHERE LOWER(TABLE_NAME) = ? AND LOWER(INDEX_NAME) = ?
+                ORDER BY ORDINAL_POSITION
+                """, String.class, table, index);
+    }
+
+    /**
+     * Kế hoạch thực thi (chữ thường) của câu SQL cuối cùng Hibernate gửi xuống; H2 chấp nhận EXPLAIN
+     * với tham số chưa gán nên không cần dựng lại giá trị
+     */
+    private String explainLastStatement() {
+        List<String> statements = CapturingStatementInspector.STATEMENTS;
+        assertThat(statements).isNotEmpty();
+        String sql = statements.get(statements.size() - 1);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class)).toLowerCase();
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
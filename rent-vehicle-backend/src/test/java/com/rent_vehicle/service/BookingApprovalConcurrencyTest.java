@@ -0,0 +1,299 @@
+package com.rent_vehicle.service;
+
+import com.rent_vehicle.exception.AppException;
+import com.rent_vehicle.exception.ErrorCode;
+import com.rent_vehicle.model.Booking;
+import com.rent_vehicle.model.User;
+import com.rent_vehicle.model.Vehicle;
+import com.rent_vehicle.model.VehicleModel;
+import com.rent_vehicle.model.VehicleType;
+import com.rent_vehicle.repository.BookingRepository;
+import com.rent_vehicle.repository.UserRepository;
+import com.rent_vehicle.repository.VehicleModelRepository;
+import com.rent_vehicle.repository.VehicleRepository;
+import com.rent_vehicle.repository.VehicleTypeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Duyệt booking đồng thời: khóa dòng xe phải chặn hai lượt duyệt trùng lịch trên cùng một xe,
+ * nhưng không được chặn lượt duyệt trên xe khác, kể cả khi hàng trăm lượt duyệt chạy cùng lúc
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking-approval;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "app.booking.availability-index.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookingService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingApprovalConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int LOAD_THREADS = 64;
+    private static final int LOAD_VEHICLES = 50;
+    private static final int LOAD_BOOKINGS_PER_VEHICLE = 10;
+    // Ngưỡng thấp để không chập chờn trên máy CI, chỉ bắt trường hợp các lượt duyệt bị tuần tự hóa nặng
+    private static final double MIN_APPROVALS_PER_SECOND = 20;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleModelRepository vehicleModelRepository;
+
+    @Autowired
+    private VehicleTypeRepository vehicleTypeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private BookingEmailEventProducer bookingEmailEventProducer;
+
+    @MockitoBean
+    private BookingAvailabilityIndex bookingAvailabilityIndex;
+
+    @MockitoBean
+    private BookingHoldStore bookingHoldStore;
+
+    private ExecutorService executor;
+    private User user;
+    private VehicleModel model;
+    private LocalDate startDate;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(LOAD_THREADS);
+        VehicleType type = vehicleTypeRepository.save(VehicleType.builder().name("Sedan").build());
+        model = vehicleModelRepository.save(VehicleModel.builder()
+                .name("Vios")
+                .brand("Toyota")
+                .vehicleType(type)
+                .pricePerDay(BigDecimal.valueOf(500_000))
+                .seats(5)
+                .transmission("automatic")
+                .fuel("gasoline")
+                .build());
+        user = userRepository.save(User.builder()
+                .fullName("Nguyen Van A")
+                .email("a@example.com")
+                .role(User.Role.USER)
+                .status(User.Status.active)
+                .build());
+        startDate = LocalDate.now().plusDays(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        bookingRepository.deleteAllInBatch();
+        vehicleRepository.deleteAllInBatch();
+        vehicleModelRepository.deleteAllInBatch();
+        vehicleTypeRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void overlappingApprovalsOnOneVehicleLetExactlyOneThrough() throws Exception {
+        Vehicle vehicle = saveVehicle("30A-00001");
+        List<Long> bookingIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            // Các khoảng ngày lệch nhau một ngày nhưng đều giao nhau
+            bookingIds.add(savePending(vehicle, startDate.plusDays(i % 2), startDate.plusDays(3)).getId());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ErrorCode>> results = new ArrayList<>();
+        for (Long bookingId : bookingIds) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    bookingService.approveBooking(bookingId);
+                    return null;
+                } catch (AppException ex) {
+                    return ex.getErrorCode();
+                }
+            }));
+        }
+        start.countDown();
+
+        int approved = 0;
+        for (Future<ErrorCode> result : results) {
+            ErrorCode errorCode = result.get(30, TimeUnit.SECONDS);
+            if (errorCode == null) {
+                approved++;
+            } else {
+                assertThat(errorCode).isEqualTo(ErrorCode.BOOKING_CONFLICT);
+            }
+        }
+
+        assertThat(approved).isEqualTo(1);
+        assertThat(bookingRepository.findAll())
+                .filteredOn(booking -> booking.getStatus() == Booking.BookingStatus.approved)
+                .hasSize(1);
+    }
+
+    @Test
+    void lockOnOneVehicleDoesNotBlockApprovalOnAnother() throws Exception {
+        Vehicle lockedVehicle = saveVehicle("30A-00001");
+        Vehicle freeVehicle = saveVehicle("30A-00002");
+        Long blockedBookingId = savePending(lockedVehicle, startDate, startDate.plusDays(2)).getId();
+        Long freeBookingId = savePending(freeVehicle, startDate, startDate.plusDays(2)).getId();
+
+        // Một transaction khác giữ khóa xe đầu tiên như một lượt duyệt đang chạy
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Future<?> holder = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            vehicleRepository.lockById(lockedVehicle.getId());
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> blocked = executor.submit(() -> bookingService.approveBooking(blockedBookingId));
+        Future<?> free = executor.submit(() -> bookingService.approveBooking(freeBookingId));
+
+        free.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> blocked.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        blocked.get(10, TimeUnit.SECONDS);
+
+        assertThat(bookingRepository.findAll())
+                .allMatch(booking -> booking.getStatus() == Booking.BookingStatus.approved);
+    }
+
+    @Test
+    void approvalWithoutVehicleSkipsVehicleLockedByAnotherApproval() throws Exception {
+        Vehicle lockedVehicle = saveVehicle("30A-00001");
+        Vehicle freeVehicle = saveVehicle("30A-00002");
+        Long bookingId = savePending(null, startDate, startDate.plusDays(2)).getId();
+
+        // Xe đầu tiên (được ưu tiên theo id) đang bị một lượt duyệt khác giữ
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Future<?> holder = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            vehicleRepository.lockById(lockedVehicle.getId());
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            executor.submit(() -> bookingService.approveBooking(bookingId)).get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        Booking approved = bookingRepository.findById(bookingId).orElseThrow();
+        assertThat(approved.getStatus()).isEqualTo(Booking.BookingStatus.approved);
+        assertThat(approved.getVehicle().getId()).isEqualTo(freeVehicle.getId());
+    }
+
+    @Test
+    void fiveHundredConcurrentApprovalsAllSucceedWithoutOverlap() throws Exception {
+        List<Long> bookingIds = new ArrayList<>();
+        for (int v = 0; v < LOAD_VEHICLES; v++) {
+            Vehicle vehicle = saveVehicle("30A-%05d".formatted(v));
+            for (int i = 0; i < LOAD_BOOKINGS_PER_VEHICLE; i++) {
+                // Mỗi xe có các khoảng ngày rời nhau nên mọi lượt duyệt đều phải thành công
+                LocalDate from = startDate.plusDays(i * 5L);
+                bookingIds.add(savePending(vehicle, from, from.plusDays(2)).getId());
+            }
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (Long bookingId : bookingIds) {
+            results.add(executor.submit(() -> {
+                start.await();
+                bookingService.approveBooking(bookingId);
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), 1);
+
+        double approvalsPerSecond = bookingIds.size() * 1000.0 / elapsedMillis;
+        System.out.printf("%d concurrent approvals on %d vehicles with %d threads: %d ms, %.0f approvals/s%n",
+                bookingIds.size(), LOAD_VEHICLES, LOAD_THREADS, elapsedMillis, approvalsPerSecond);
+
+        assertThat(approvalsPerSecond).isGreaterThanOrEqualTo(MIN_APPROVALS_PER_SECOND);
+
+        assertThat(bookingRepository.findAll())
+                .hasSize(LOAD_VEHICLES * LOAD_BOOKINGS_PER_VEHICLE)
+                .allMatch(booking -> booking.getStatus() == Booking.BookingStatus.approved);
+    }
+
+    private Vehicle saveVehicle(String licensePlate) {
+        return vehicleRepository.save(Vehicle.builder()
+                .vehicleModel(model)
+                .licensePlate(licensePlate)
+                .status(Vehicle.VehicleStatus.available)
+                .build());
+    }
+
+    private Booking savePending(Vehicle vehicle, LocalDate from, LocalDate to) {
+        return bookingRepository.save(Booking.builder()
+                .user(user)
+                .vehicleModel(model)
+                .vehicle(vehicle)
+                .startDate(from)
+                .endDate(to)
+                .totalPrice(BigDecimal.valueOf(500_000))
+                .status(Booking.BookingStatus.pending)
+                .paymentMethod(Booking.PaymentMethod.cash)
+                .build());
+    }
+}
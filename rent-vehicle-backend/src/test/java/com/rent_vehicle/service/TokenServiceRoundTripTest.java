@@ -0,0 +1,161 @@
+package com.rent_vehicle.service;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.event.command.CommandFailedEvent;
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandStartedEvent;
+import io.lettuce.core.event.command.CommandSucceededEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Mỗi thao tác session trong TokenService phải chỉ tốn một round-trip tới Redis (một lệnh EVALSHA),
+ * đếm bằng CommandListener của Lettuce trên Redis thật. Bỏ qua nếu không kết nối được Redis.
+ */
+class TokenServiceRoundTripTest {
+
+    private static final int ITERATIONS = 200;
+
+    private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+
+    private LettuceConnectionFactory connectionFactory;
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379)
+        );
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        // Listener phải được gắn trước khi client mở kết nối đầu tiên
+        ((AbstractRedisClient) connectionFactory.getNativeClient()).addListener(new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                commands.add(event.getCommand().getType().toString());
+            }
+
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+            }
+        });
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception ex) {
+            connectionFactory.destroy();
+            assumeTrue(false, "Redis is not reachable: " + ex.getMessage());
+        }
+
+        RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+
+        tokenService = new TokenService(redisTemplate, mock(AccessTokenBlacklistCache.class));
+        ReflectionTestUtils.setField(tokenService, "refreshTokenDuration", 60L);
+
+        // Lần gọi đầu có thể tốn thêm EVAL khi script chưa nằm trong script cache của Redis
+        String warmUpSession = tokenService.generateSessionId();
+        tokenService.saveRefreshToken(-1L, "warm-up", warmUpSession);
+        tokenService.getRefreshTokenBySessionId(warmUpSession);
+        tokenService.deleteRefreshToken(-1L, warmUpSession);
+        tokenService.saveRefreshToken(-1L, "warm-up", warmUpSession);
+        tokenService.deleteSession(warmUpSession);
+        tokenService.deleteAllRefreshTokens(-1L);
+        commands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void saveGetAndDeleteEachTakeOneRoundTrip() {
+        long userId = -Math.abs(UUID.randomUUID().getMostSignificantBits() % 1_000_000) - 2;
+        long saveNanos = 0;
+        long getNanos = 0;
+        long deleteNanos = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            String sessionId = tokenService.generateSessionId();
+
+            long startedAt = System.nanoTime();
+            tokenService.saveRefreshToken(userId, "token-" + i, sessionId);
+            saveNanos += System.nanoTime() - startedAt;
+            assertThat(commands).as("saveRefreshToken").containsExactly("EVALSHA");
+            commands.clear();
+
+            startedAt = System.nanoTime();
+            assertThat(tokenService.getRefreshTokenBySessionId(sessionId)).isEqualTo("token-" + i);
+            getNanos += System.nanoTime() - startedAt;
+            assertThat(commands).as("getRefreshTokenBySessionId").containsExactly("EVALSHA");
+            commands.clear();
+
+            startedAt = System.nanoTime();
+            tokenService.deleteRefreshToken(userId, sessionId);
+            deleteNanos += System.nanoTime() - startedAt;
+            assertThat(commands).as("deleteRefreshToken").containsExactly("EVALSHA");
+            commands.clear();
+
+            assertThat(tokenService.getRefreshTokenBySessionId(sessionId)).isNull();
+            commands.clear();
+        }
+
+        System.out.printf("TokenService avg latency over %d runs: save %.1f us, get %.1f us, delete %.1f us%n",
+                ITERATIONS,
+                saveNanos / 1_000.0 / ITERATIONS,
+                getNanos / 1_000.0 / ITERATIONS,
+                deleteNanos / 1_000.0 / ITERATIONS);
+    }
+
+    @Test
+    void deleteSessionAndDeleteAllTakeOneRoundTrip() {
+        long userId = -Math.abs(UUID.randomUUID().getMostSignificantBits() % 1_000_000) - 2;
+        List<String> sessionIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String sessionId = tokenService.generateSessionId();
+            tokenService.saveRefreshToken(userId, "token-" + i, sessionId);
+            sessionIds.add(sessionId);
+        }
+        commands.clear();
+
+        tokenService.deleteSession(sessionIds.get(0));
+        assertThat(commands).as("deleteSession").containsExactly("EVALSHA");
+        commands.clear();
+
+        tokenService.deleteAllRefreshTokens(userId);
+        assertThat(commands).as("deleteAllRefreshTokens").containsExactly("EVALSHA");
+        commands.clear();
+
+        for (String sessionId : sessionIds) {
+            assertThat(tokenService.getRefreshTokenBySessionId(sessionId)).isNull();
+        }
+    }
+}